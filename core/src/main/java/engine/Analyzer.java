@@ -0,0 +1,337 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.RuleEnum;
+import objects.StoneColor;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This is a batch analyzer that searches many positions in parallel on a {@link ForkJoinPool}.
+ *
+ * A position is one line of text, either a move list or a board string:
+ * <ul>
+ * <li>moves like "h8 i9 h9", a letter for x from a and a number for y from 1, black moves first,
+ * or the records of {@link Tournament} with two letters per move, e.g. "hhihhi"</li>
+ * <li>a board of size*size characters, row by row for each x, '.' or '-' for empty, 'x' for black and 'o' for white,
+ * '/' between the rows is allowed</li>
+ * </ul>
+ * Empty lines and lines starting with '#' are skipped. The player to move is black if both have the same number of stones.
+ *
+ * Every position is searched by its own {@link Search}, the pool splits the positions into halves until
+ * there is one per task, so all threads stay busy even if some positions take much longer than others.
+ * To solve tactical positions a {@link ThreatSolver} first looks for a victory by continuous fours, which is
+ * a proven win. Only the positions without one are searched, so their scores are evaluations.
+ * The result of each position is printed in the order of the file, followed by the total throughput.
+ */
+public class Analyzer
+{
+
+    private final ForkJoinPool pool;
+    private final long         millis;
+    private final int          depth;
+    private final boolean      vcf;
+
+
+    /**
+     * Constructor for Analyzer.
+     *
+     * @param threads number of positions searched at the same time
+     * @param millis  time budget per position in milliseconds
+     * @param depth   maximal depth per position, at most {@link Search#MAX_DEPTH}
+     */
+    public Analyzer(int threads, long millis, int depth) {
+
+        this(threads, millis, depth, false);
+    }
+
+
+    /**
+     * Constructor for Analyzer that solves positions.
+     *
+     * @param threads number of positions searched at the same time
+     * @param millis  time budget per position in milliseconds, for the solver and again for the search
+     * @param depth   maximal depth per position, at most {@link Search#MAX_DEPTH}
+     * @param vcf     true to look for a victory by continuous fours before searching
+     */
+    public Analyzer(int threads, long millis, int depth, boolean vcf) {
+
+        this.pool = new ForkJoinPool(threads);
+        this.millis = millis;
+        this.depth = depth;
+        this.vcf = vcf;
+    }
+
+
+    /**
+     * Searches all positions.
+     *
+     * @param positions {@link BoardSnapshot}s to search, the player to move follows from the stones
+     *
+     * @return {@link SearchResult} per position
+     */
+    public SearchResult[] analyze(BoardSnapshot[] positions) {
+
+        return analyze(positions, null);
+    }
+
+
+    /**
+     * Solves or searches all positions.
+     *
+     * @param positions {@link BoardSnapshot}s to search, the player to move follows from the stones
+     * @param proven    set to true for each position with a victory by continuous fours, may be null
+     *
+     * @return {@link SearchResult} per position, for a proven win the depth is the length of the winning sequence
+     */
+    public SearchResult[] analyze(BoardSnapshot[] positions, boolean[] proven) {
+
+        SearchResult[] results = new SearchResult[positions.length];
+        pool.invoke(new Batch(positions, results, proven, 0, positions.length));
+        return results;
+    }
+
+
+    /**
+     * Looks for a victory by continuous fours with the time budget of a position.
+     *
+     * @return {@link SearchResult} of the first move, null if there is none
+     */
+    private SearchResult solve(BoardSnapshot position, byte color) {
+
+        long         start    = System.nanoTime();
+        ThreatSolver solver   = new ThreatSolver(position);
+        int[]        sequence = solver.solveVcf(color, ThreatSolver.MAX_ATTACKS, millis);
+        if(sequence == null) return null;
+        return new SearchResult(sequence[0], Search.WIN-sequence.length, sequence.length, solver.getNodes(), System.nanoTime()-start);
+    }
+
+
+    /**
+     * Ends the threads of the pool.
+     */
+    public void shutdown() {
+
+        pool.shutdown();
+    }
+
+
+    /**
+     * Positions from first to last, split into halves until there is only one.
+     */
+    private class Batch extends RecursiveAction
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BoardSnapshot[] positions;
+        private final SearchResult[]  results;
+        private final boolean[]       proven;
+        private final int             first;
+        private final int             last;
+
+
+        Batch(BoardSnapshot[] positions, SearchResult[] results, boolean[] proven, int first, int last) {
+
+            this.positions = positions;
+            this.results = results;
+            this.proven = proven;
+            this.first = first;
+            this.last = last;
+        }
+
+
+        @Override
+        protected void compute() {
+
+            if(last-first>1) {
+                int middle = (first+last) >>> 1;
+                invokeAll(new Batch(positions, results, proven, first, middle), new Batch(positions, results, proven, middle, last));
+            } else if(last>first) {
+                BoardSnapshot position = positions[first];
+                byte          color    = toMove(position);
+                SearchResult  result   = vcf ? solve(position, color) : null;
+                if(result == null) result = new Search(position).search(color, millis, depth);
+                else if(proven != null) proven[first] = true;
+                results[first] = result;
+            }
+        }
+    }
+
+
+    /**
+     * Player to move: black if both players have the same number of stones, white otherwise.
+     *
+     * @param position {@link BoardSnapshot}
+     *
+     * @return {@link StoneColor}
+     */
+    public static byte toMove(BoardSnapshot position) {
+
+        int black = 0;
+        for(int i = 0; i<position.getMoveCount(); i++) {
+            if(position.getColor(position.getMove(i)) == StoneColor.BLACK) black++;
+        }
+        return 2*black>position.getMoveCount() ? StoneColor.WHITE : StoneColor.BLACK;
+    }
+
+
+    /**
+     * Reads a position from a line for {@link RuleEnum#EXACT_FIVE}, the rule of a new {@link GameBoard}.
+     *
+     * @param line move list or board string
+     * @param size board size
+     *
+     * @return {@link BoardSnapshot} of the position
+     *
+     * @throws IllegalArgumentException if the line is no position
+     */
+    public static BoardSnapshot parse(String line, int size) {
+
+        return parse(line, size, RuleEnum.EXACT_FIVE);
+    }
+
+
+    /**
+     * Reads a position from a line.
+     *
+     * @param line move list or board string
+     * @param size board size
+     * @param rule {@link RuleEnum} of the position
+     *
+     * @return {@link BoardSnapshot} of the position
+     *
+     * @throws IllegalArgumentException if the line is no position
+     */
+    public static BoardSnapshot parse(String line, int size, RuleEnum rule) {
+
+        GameBoard board   = new GameBoard(size, rule);
+        String    compact = line.replace("/", "").trim();
+        if(compact.length() == size*size && compact.matches("[.\\-xXoO]+")) {
+            for(int cell = 0; cell<size*size; cell++) {
+                char c = Character.toLowerCase(compact.charAt(cell));
+                if(c == 'x') board.addStone(cell, StoneColor.BLACK);
+                if(c == 'o') board.addStone(cell, StoneColor.WHITE);
+            }
+            return board.snapshot();
+        }
+
+        byte color = StoneColor.BLACK;
+        for(String token : line.trim().split("[\\s,;]+")) {
+            if(token.isEmpty()) continue;
+            int[] cells = token.matches("[a-zA-Z]\\d+") ? new int[]{cell(token.charAt(0), Integer.parseInt(token.substring(1))-1, size)}
+                        : token.matches("([a-zA-Z]{2})+") ? pairs(token, size) : null;
+            if(cells == null) throw new IllegalArgumentException("no move: "+token);
+            for(int cell : cells) {
+                if(!board.checkValid(cell)) throw new IllegalArgumentException("invalid move: "+token);
+                board.addStone(cell, color);
+                color = StoneColor.opponent(color);
+            }
+        }
+        return board.snapshot();
+    }
+
+
+    private static int[] pairs(String token, int size) {
+
+        int[] cells = new int[token.length()/2];
+        for(int i = 0; i<cells.length; i++) {
+            cells[i] = cell(token.charAt(2*i), Character.toLowerCase(token.charAt(2*i+1))-'a', size);
+        }
+        return cells;
+    }
+
+
+    private static int cell(char letter, int y, int size) {
+
+        int x = Character.toLowerCase(letter)-'a';
+        if(x<0 || y<0 || x>=size || y>=size) throw new IllegalArgumentException("not on the board: "+letter+(y+1));
+        return x*size+y;
+    }
+
+
+    /**
+     * Name of a cell like "h8".
+     *
+     * @param cell cell index, -1 for no move
+     * @param size board size
+     *
+     * @return letter for x and number for y, "-" for no move
+     */
+    public static String name(int cell, int size) {
+
+        return cell<0 ? "-" : (char) ('a'+cell/size)+Integer.toString(cell%size+1);
+    }
+
+
+    /**
+     * Analyzes a file of positions and prints one line per position and the throughput.
+     *
+     * @param args file, optional milliseconds per position (default 1000), maximal depth (default {@link Search#MAX_DEPTH}),
+     *             number of threads (default all cores), rule freestyle, exact_five or renju (default exact_five)
+     *             and search or vcf (default search), vcf to solve the positions before searching them
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length<1) {
+            System.out.println("usage: Analyzer <file> [millis] [depth] [threads] [freestyle|exact_five|renju] [search|vcf]");
+            return;
+        }
+        long     millis  = args.length>1 ? Long.parseLong(args[1]) : 1000;
+        int      depth   = args.length>2 ? Integer.parseInt(args[2]) : Search.MAX_DEPTH;
+        int      threads = args.length>3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        RuleEnum rule    = args.length>4 ? RuleEnum.valueOf(args[4].toUpperCase()) : RuleEnum.EXACT_FIVE;
+        boolean  vcf     = args.length>5 && args[5].equalsIgnoreCase("vcf");
+        int      size    = GameBoard.DEFAULT_SIZE;
+
+        List<BoardSnapshot> positions = new ArrayList<BoardSnapshot>();
+        List<String>        lines     = new ArrayList<String>();
+        BufferedReader      in        = new BufferedReader(new FileReader(args[0]));
+        try {
+            String line;
+            for(int number = 1; (line = in.readLine()) != null; number++) {
+                if(line.trim().isEmpty() || line.trim().startsWith("#")) continue;
+                try {
+                    positions.add(parse(line, size, rule));
+                    lines.add(Integer.toString(number));
+                } catch(IllegalArgumentException e) {
+                    System.out.println(number+" error: "+e.getMessage());
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        Analyzer       analyzer = new Analyzer(threads, millis, depth, vcf);
+        boolean[]      proven   = new boolean[positions.size()];
+        long           start    = System.nanoTime();
+        SearchResult[] results  = analyzer.analyze(positions.toArray(new BoardSnapshot[positions.size()]), proven);
+        long           nanos    = System.nanoTime()-start;
+        analyzer.shutdown();
+
+        long nodes  = 0;
+        int  proofs = 0;
+        System.out.println("line  move    score  depth       nodes      ms  result");
+        for(int i = 0; i<results.length; i++) {
+            SearchResult result = results[i];
+            nodes += result.getNodes();
+            if(proven[i]) proofs++;
+            System.out.println(String.format("%4s  %-4s %8d %6d %11d %7d  %s", lines.get(i), name(result.getMove(), size), result.getScore(),
+                                             result.getDepth(), result.getNodes(), result.getMillis(), proven[i] ? "vcf" : "search"));
+        }
+        double seconds = nanos/1e9;
+        System.out.println(String.format("%d positions, %d proven by vcf, %d nodes in %.1f s: %.1f positions/s, %d nodes/s on %d threads, %s",
+                                         results.length, proofs, nodes, seconds, results.length/seconds, (long) (nodes/seconds), threads,
+                                         rule.name().toLowerCase()));
+    }
+
+}
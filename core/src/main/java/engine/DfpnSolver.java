@@ -0,0 +1,704 @@
+package engine;
+
+import objects.BoardListener;
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.Pattern;
+import objects.StoneColor;
+import objects.ThreatIndex;
+import objects.Zobrist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * This is an exact solver: a depth-first proof-number search (df-pn) that proves a position won, lost or drawn
+ * for the player to move, meant for small boards like 7x7 to 11x11 and for tactical positions.
+ *
+ * A proof-number search grows the tree where a proof or disproof looks cheapest. Every node has a proof number
+ * and a disproof number, the least number of leaves that still have to be solved to prove or to disprove it.
+ * Here they are kept as phi and delta from the view of the player to move, so both kinds of node are handled alike:
+ * phi of a node is the smallest delta of its children and delta the sum of their phis.
+ * The depth-first variant keeps the numbers in a table instead of the tree and only leaves a subtree
+ * when its numbers cross the thresholds of its parent.
+ *
+ * A proof only knows two outcomes, so a position is solved by up to two proofs: first whether the player to move
+ * wins, a draw counting as a failure, then whether the opponent wins. If neither wins, it is a draw.
+ * A player who can make five wins at once, a player facing two fives loses, and a player facing one
+ * only tries the block. Once every row of five cells holds a stone of the defender the attacker has failed,
+ * which ends most lines of a draw long before the board is full. Under {@link objects.RuleEnum#RENJU} the forbidden moves of black are left out.
+ * With radius 0 every empty cell is a move and the result is exact. Radius 1 or 2 only plays near the stones,
+ * as a {@link MoveGenerator}, which is much faster but only proves the result of that smaller game,
+ * good enough for tactical positions.
+ *
+ * The table has a fixed size, four entries share a bucket and the one with the smallest subtree is replaced,
+ * so cheap results are lost first and the expensive ones survive. Everything the search knows is in the table,
+ * so it can be written to a checkpoint file and a later run that reads it continues where the last one stopped,
+ * also with another table size. Checkpoints are written at regular intervals during {@link #solve(long)},
+ * to a temporary file that replaces the old one only when it is complete.
+ */
+public class DfpnSolver
+{
+
+    public static final  int  LOSS         = -1;
+    public static final  int  DRAW         = 0;
+    public static final  int  WIN          = 1;
+    public static final  int  UNKNOWN      = 2;
+    // proof and disproof numbers are capped here, INF is a proven value
+    public static final  int  INF          = 1 << 30;
+    public static final  int  MAGIC        = 0x44465042;
+    private static final int  VERSION      = 1;
+    // bytes of an entry: key, numbers and work
+    private static final int  ENTRY_BYTES  = 20;
+    private static final int  BUCKET       = 4;
+    // the clock is read after every CHECK_NODES+1 nodes
+    private static final int  CHECK_NODES  = 1023;
+    // xor into the key when white is to move and when white is the one to prove a win
+    private static final long WHITE_KEY    = 0x6A09E667F3BCC909L;
+    private static final long ATTACKER_KEY = 0xBB67AE8584CAA73BL;
+
+    private final    BoardSnapshot position;
+    private final    byte          color;
+    private final    int           radius;
+    private final    GameBoard     board;
+    private final    ThreatIndex   index;
+    private final    Windows       windows;
+    private final    MoveGenerator generator;
+    private final    int           cells;
+    // table: key, phi << 32 | delta, nodes searched below the entry
+    private final    long[]        keys;
+    private final    long[]        values;
+    private final    int[]         work;
+    private final    int           mask;
+    // moves and their child numbers per ply
+    private final    int[][]       moves;
+    private final    long[][]      children;
+    // the player who has to win in the current proof
+    private          byte          attacker;
+    private          long          nodes;
+    private          long          deadline;
+    private          boolean       aborted;
+    private volatile boolean       stopped;
+    // milliseconds of the earlier runs that were read from a checkpoint
+    private          long          previousMillis;
+    private          long          runStart;
+    private          File          checkpoint;
+    private          long          checkpointNanos;
+    private          long          lastCheckpoint;
+    private          IOException   checkpointError;
+    private          int           result       = UNKNOWN;
+    private          int           bestMove     = -1;
+
+
+    /**
+     * Constructor for DfpnSolver.
+     *
+     * @param position  {@link BoardSnapshot} to solve
+     * @param color     {@link StoneColor} of the player to move
+     * @param radius    0 for all empty cells, 1 or 2 for the cells near the stones only
+     * @param megabytes size of the table, rounded down to a power of two entries of {@link #ENTRY_BYTES} bytes
+     *
+     * @throws IllegalArgumentException if the radius or the size is out of range
+     */
+    public DfpnSolver(BoardSnapshot position, byte color, int radius, int megabytes) {
+
+        if(radius<0 || radius>2) throw new IllegalArgumentException("radius must be 0, 1 or 2: "+radius);
+        if(megabytes<1 || megabytes>8192) throw new IllegalArgumentException("table size must be 1 to 8192 MB: "+megabytes);
+        this.position = position;
+        this.color = color;
+        this.radius = radius;
+        board = position.toBoard();
+        index = new ThreatIndex(board);
+        windows = new Windows(board);
+        generator = radius == 0 ? null : new MoveGenerator(board, radius);
+        cells = board.getSize()*board.getSize();
+
+        int entries = Integer.highestOneBit((int) Math.min(Integer.MAX_VALUE/2, ((long) megabytes << 20)/ENTRY_BYTES));
+        keys = new long[entries];
+        values = new long[entries];
+        work = new int[entries];
+        mask = entries-1;
+        int plies = board.getCounter()+1;
+        moves = new int[plies][cells];
+        children = new long[plies][cells];
+    }
+
+
+    /**
+     * Writes a checkpoint to a file every interval while solving, and once more at the end of {@link #solve(long)}.
+     *
+     * @param file   checkpoint file, replaced every time
+     * @param millis interval in milliseconds
+     */
+    public void setCheckpoint(File file, long millis) {
+
+        checkpoint = file;
+        checkpointNanos = millis*1000000L;
+    }
+
+
+    /**
+     * Solves the position, continuing with what this solver or a restored checkpoint already knows.
+     * Can be called again after {@link #UNKNOWN} to go on.
+     *
+     * @param millis time budget in milliseconds
+     *
+     * @return {@link #WIN}, {@link #LOSS} or {@link #DRAW} for the player to move, {@link #UNKNOWN} if the time ran out
+     *
+     * @throws IOException if a checkpoint could not be written, the search stops then
+     */
+    public int solve(long millis) throws IOException {
+
+        if(result != UNKNOWN) return result;
+        runStart = System.nanoTime();
+        lastCheckpoint = runStart;
+        deadline = runStart+Math.min(millis, Long.MAX_VALUE/2000000L)*1000000L;
+        aborted = false;
+        checkpointError = null;
+        try {
+            byte opponent = StoneColor.opponent(color);
+            int  win      = prove(color);
+            if(win == WIN) {
+                result = WIN;
+            } else if(win == LOSS) {
+                int lose = prove(opponent);
+                if(lose != UNKNOWN) result = lose == WIN ? LOSS : DRAW;
+            }
+        } finally {
+            previousMillis += (System.nanoTime()-runStart)/1000000;
+            runStart = 0;
+        }
+        if(checkpointError != null) throw checkpointError;
+        if(checkpoint != null) write(checkpoint);
+        return result;
+    }
+
+
+    /**
+     * Proves or disproves a win of one player.
+     *
+     * @return {@link #WIN} if the attacker wins, {@link #LOSS} if not, {@link #UNKNOWN} if the time ran out
+     */
+    private int prove(byte player) {
+
+        attacker = player;
+        long value = lookup(key(board.getHash(), color));
+        while(!aborted && phi(value) != 0 && delta(value) != 0) {
+            value = mid(0, color, INF, INF);
+        }
+        if(phi(value) != 0 && delta(value) != 0) return UNKNOWN;
+        // the player to move reached its goal: a win as attacker, at least a draw as defender
+        boolean reached = phi(value) == 0;
+        if(reached) bestMove = proofMove(0, color);
+        return reached == (player == color) ? WIN : LOSS;
+    }
+
+
+    /**
+     * Multiple iterative deepening of one node: searches the child with the smallest delta until the numbers
+     * of the node cross a threshold.
+     *
+     * @return phi << 32 | delta of the node
+     */
+    private long mid(int ply, byte mover, int thresholdPhi, int thresholdDelta) {
+
+        if((++nodes & CHECK_NODES) == 0) clock();
+        long key      = key(board.getHash(), mover);
+        long start    = nodes;
+        byte opponent = StoneColor.opponent(mover);
+        long value    = terminal(mover);
+        int  count    = value == 0 ? generate(ply, mover) : 0;
+        if(value == 0 && count == 0) {
+            // a full board, or only forbidden cells left, is a draw, which is the goal of the defender
+            value = index.getCount(opponent, Pattern.FIVE)>0 || mover == attacker ? pack(INF, 0) : pack(0, INF);
+        }
+        if(value != 0) {
+            store(key, value, 1);
+            return value;
+        }
+
+        int[]  list    = moves[ply];
+        long[] numbers = children[ply];
+        for(int i = 0; i<count; i++) numbers[i] = lookup(childKey(list[i], mover));
+
+        while(true) {
+            int phi    = INF;
+            int delta  = 0;
+            int best   = -1;
+            int delta2 = INF;
+            for(int i = 0; i<count; i++) {
+                int childPhi   = phi(numbers[i]);
+                int childDelta = delta(numbers[i]);
+                // a child the opponent can not win makes the node proven, large sums stay below INF
+                delta = delta == INF || childPhi == INF ? INF : Math.min(INF-1, delta+childPhi);
+                if(childDelta<phi) {
+                    delta2 = phi;
+                    phi = childDelta;
+                    best = i;
+                } else if(childDelta<delta2) {
+                    delta2 = childDelta;
+                }
+            }
+            value = pack(phi, delta);
+            if(phi>=thresholdPhi || delta>=thresholdDelta || aborted) {
+                store(key, value, nodes-start);
+                return value;
+            }
+            // the best child may grow until its phi makes the sum cross our delta threshold,
+            // or its delta passes the second best
+            int childPhi = phi(numbers[best]);
+            board.addStone(list[best], mover);
+            numbers[best] = mid(ply+1, opponent, thresholdDelta-delta+childPhi, Math.min(thresholdPhi, delta2+1));
+            board.undo();
+        }
+    }
+
+
+    /**
+     * Numbers of a node that is decided by the fives on the board.
+     *
+     * @return phi << 32 | delta, 0 if the node has to be searched
+     */
+    private long terminal(byte mover) {
+
+        byte opponent = StoneColor.opponent(mover);
+        if(index.getCount(mover, Pattern.FIVE)>0) return pack(0, INF);
+        if(index.getCount(opponent, Pattern.FIVE)>0) {
+            int fives = 0;
+            for(int cell = 0; cell<cells && fives<2; cell++) {
+                if(board.getColor(cell) == StoneColor.EMPTY && makesFive(cell, opponent)) fives++;
+            }
+            if(fives>=2) return pack(INF, 0);
+        }
+        // without a window of five free of the defender the attacker can not win anymore
+        if(!windows.isLive(attacker)) return mover == attacker ? pack(INF, 0) : pack(0, INF);
+        return 0;
+    }
+
+
+    /**
+     * Fills the move list of a ply, only the blocks if the opponent could make five.
+     *
+     * @return number of moves
+     */
+    private int generate(int ply, byte mover) {
+
+        int[]   list     = moves[ply];
+        byte    opponent = StoneColor.opponent(mover);
+        boolean block    = index.getCount(opponent, Pattern.FIVE)>0;
+        int     count    = 0;
+        if(generator == null || board.getMoveCount() == 0) {
+            for(int cell = 0; cell<cells; cell++) {
+                if(board.getColor(cell) == StoneColor.EMPTY) list[count++] = cell;
+            }
+        } else {
+            count = generator.copyTo(list, 0);
+        }
+        int kept = 0;
+        for(int i = 0; i<count; i++) {
+            int cell = list[i];
+            if(block && !makesFive(cell, opponent)) continue;
+            if(mover == StoneColor.BLACK && index.isForbidden(cell)) continue;
+            list[kept++] = cell;
+        }
+        return kept;
+    }
+
+
+    private boolean makesFive(int cell, byte color) {
+
+        for(int axis = 0; axis<4; axis++) {
+            if(index.getPattern(cell, axis, color) == Pattern.FIVE) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Move of a proven node that keeps the proof, a child with delta 0.
+     */
+    private int proofMove(int ply, byte mover) {
+
+        if(index.getCount(mover, Pattern.FIVE)>0) {
+            for(int cell = 0; cell<cells; cell++) {
+                if(board.getColor(cell) == StoneColor.EMPTY && makesFive(cell, mover)) return cell;
+            }
+        }
+        byte  opponent = StoneColor.opponent(mover);
+        int   count    = generate(ply, mover);
+        int[] list     = moves[ply];
+        for(int i = 0; i<count; i++) {
+            // children that were decided at once may not be in the table
+            board.addStone(list[i], mover);
+            long value = terminal(opponent);
+            if(value == 0) value = lookup(key(board.getHash(), opponent));
+            board.undo();
+            if(delta(value) == 0) return list[i];
+        }
+        return -1;
+    }
+
+
+    private void clock() {
+
+        long now = System.nanoTime();
+        if(stopped || now-deadline>=0) aborted = true;
+        if(checkpoint != null && now-lastCheckpoint>=checkpointNanos && checkpointError == null) {
+            lastCheckpoint = now;
+            try {
+                write(checkpoint);
+            } catch(IOException e) {
+                checkpointError = e;
+                aborted = true;
+            }
+        }
+    }
+
+
+    private long key(long hash, byte mover) {
+
+        if(mover == StoneColor.WHITE) hash ^= WHITE_KEY;
+        if(attacker == StoneColor.WHITE) hash ^= ATTACKER_KEY;
+        return hash;
+    }
+
+
+    private long childKey(int cell, byte mover) {
+
+        long hash = board.getHash() ^ Zobrist.key(board.cellX(cell), board.cellY(cell), mover);
+        return key(hash, StoneColor.opponent(mover));
+    }
+
+
+    private static long pack(int phi, int delta) {
+
+        return (long) phi << 32 | delta;
+    }
+
+
+    private static int phi(long value) {
+
+        return (int) (value >>> 32);
+    }
+
+
+    private static int delta(long value) {
+
+        return (int) value;
+    }
+
+
+    /**
+     * Numbers of a position, 1 and 1 if it is not in the table.
+     */
+    private long lookup(long key) {
+
+        int bucket = (int) key & mask & -BUCKET;
+        for(int slot = bucket; slot<bucket+BUCKET; slot++) {
+            if(keys[slot] == key && values[slot] != 0) return values[slot];
+        }
+        return pack(1, 1);
+    }
+
+
+    private void store(long key, long value, long subtree) {
+
+        int bucket  = (int) key & mask & -BUCKET;
+        int replace = bucket;
+        for(int slot = bucket; slot<bucket+BUCKET; slot++) {
+            if(keys[slot] == key || values[slot] == 0) {
+                replace = slot;
+                break;
+            }
+            if(work[slot]<work[replace]) replace = slot;
+        }
+        keys[replace] = key;
+        values[replace] = value;
+        work[replace] = (int) Math.min(Integer.MAX_VALUE, subtree);
+    }
+
+
+    /**
+     * Stops a running {@link #solve(long)} from another thread, which then returns {@link #UNKNOWN}.
+     */
+    public void stop() {
+
+        stopped = true;
+    }
+
+
+    /**
+     * @return {@link #WIN}, {@link #LOSS}, {@link #DRAW} or {@link #UNKNOWN} as far as solved
+     */
+    public int getResult() {
+
+        return result;
+    }
+
+
+    /**
+     * Move that wins for {@link #WIN} or holds the draw for {@link #DRAW}.
+     *
+     * @return cell index, -1 if the position is not solved or lost
+     */
+    public int getBestMove() {
+
+        return result == WIN || result == DRAW ? bestMove : -1;
+    }
+
+
+    /**
+     * @return nodes searched by this solver since it was created or restored
+     */
+    public long getNodes() {
+
+        return nodes;
+    }
+
+
+    /**
+     * @return milliseconds of all runs, including the ones before the checkpoint
+     */
+    public long getMillis() {
+
+        return previousMillis+(runStart == 0 ? 0 : (System.nanoTime()-runStart)/1000000);
+    }
+
+
+    /**
+     * @return share of used table entries from 0 to 1
+     */
+    public double getFill() {
+
+        int used = 0;
+        for(long value : values) {
+            if(value != 0) used++;
+        }
+        return (double) used/values.length;
+    }
+
+
+    /**
+     * Writes the table and the problem to a file, through a temporary file in the same directory.
+     *
+     * @param file checkpoint file, replaced if it exists
+     *
+     * @throws IOException if writing fails
+     */
+    public void write(File file) throws IOException {
+
+        File             temp = new File(file.getPath()+".tmp");
+        DataOutputStream out  = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeProblem(out);
+            out.writeInt(result);
+            out.writeInt(bestMove);
+            out.writeLong(nodes);
+            out.writeLong(getMillis());
+            for(int slot = 0; slot<values.length; slot++) {
+                if(values[slot] == 0) continue;
+                out.writeLong(keys[slot]);
+                out.writeLong(values[slot]);
+                out.writeInt(work[slot]);
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Reads a checkpoint of the same problem, to continue with {@link #solve(long)}.
+     *
+     * @param file checkpoint file
+     *
+     * @return false if the file does not exist
+     *
+     * @throws IOException if the file is damaged or belongs to another position, color, rule or radius
+     */
+    public boolean restore(File file) throws IOException {
+
+        if(!file.isFile()) return false;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("no checkpoint: "+file);
+            if(!readProblem(in)) throw new IOException("checkpoint of another problem: "+file);
+            result = in.readInt();
+            bestMove = in.readInt();
+            nodes = in.readLong();
+            previousMillis = in.readLong();
+            while(true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch(EOFException e) {
+                    break;
+                }
+                long value = in.readLong();
+                store(key, value, in.readInt());
+            }
+        } catch(EOFException e) {
+            throw new IOException("checkpoint is damaged: "+file, e);
+        } finally {
+            in.close();
+        }
+        return true;
+    }
+
+
+    private void writeProblem(DataOutputStream out) throws IOException {
+
+        out.writeInt(position.getSize());
+        out.writeInt(position.getRule().ordinal());
+        out.writeByte(color);
+        out.writeInt(radius);
+        out.writeLong(position.getHash());
+    }
+
+
+    private boolean readProblem(DataInputStream in) throws IOException {
+
+        // no short circuit, all fields are read
+        return in.readInt() == position.getSize() & in.readInt() == position.getRule().ordinal() & in.readByte() == color &
+               in.readInt() == radius & in.readLong() == position.getHash();
+    }
+
+
+    /**
+     * Solves the empty board or a position with checkpoints, and prints the progress after every interval.
+     *
+     * @param args board size, checkpoint file, optional interval in minutes (default 10), radius (default 0),
+     *             table size in MB (default 1024) and moves as for {@link Analyzer#parse(String, int)}
+     *
+     * @throws IOException if the checkpoint can not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length<2) {
+            System.out.println("usage: DfpnSolver <size> <checkpoint> [minutes] [radius] [megabytes] [moves]");
+            return;
+        }
+        int           size      = Integer.parseInt(args[0]);
+        File          file      = new File(args[1]);
+        long          interval  = (args.length>2 ? Long.parseLong(args[2]) : 10)*60000;
+        int           radius    = args.length>3 ? Integer.parseInt(args[3]) : 0;
+        int           megabytes = args.length>4 ? Integer.parseInt(args[4]) : 1024;
+        BoardSnapshot position  = args.length>5 ? Analyzer.parse(args[5], size) : new GameBoard(size).snapshot();
+        byte          color     = Analyzer.toMove(position);
+
+        DfpnSolver solver = new DfpnSolver(position, color, radius, megabytes);
+        if(solver.restore(file)) System.out.println("continuing "+file+" after "+solver.getMillis()/1000+" s");
+        solver.setCheckpoint(file, interval);
+        String[] names = {"loss", "draw", "win", "unknown"};
+        int      found = UNKNOWN;
+        while(found == UNKNOWN) {
+            found = solver.solve(interval);
+            System.out.println(String.format("%s after %d s, %d nodes, table %.0f %% full", names[found+1],
+                                             solver.getMillis()/1000, solver.getNodes(), 100*solver.getFill()));
+        }
+        System.out.println(names[found+1]+" for "+(color == StoneColor.BLACK ? "black" : "white")+", best move "+
+                           Analyzer.name(solver.getBestMove(), size));
+    }
+
+
+
+    /**
+     * Number of rows of five cells without a stone of each color, so the other color could still make five there.
+     */
+    private static class Windows implements BoardListener
+    {
+
+        private static final int[] AXIS_X = {1, 0, 1, 1};
+        private static final int[] AXIS_Y = {0, 1, 1, -1};
+
+        // windows through each cell
+        private final int[][] through;
+        // stones per window and color
+        private final int[][] stones;
+        // windows without a stone of the color, indexed by color-1
+        private final int[]   free = new int[2];
+
+
+        Windows(GameBoard board) {
+
+            int   size   = board.getSize();
+            int[] counts = new int[size*size];
+            int[] cells  = new int[4*size*size*5];
+            int   count  = 0;
+            for(int axis = 0; axis<4; axis++) {
+                for(int x = 0; x<size; x++) {
+                    for(int y = 0; y<size; y++) {
+                        int endX = x+4*AXIS_X[axis];
+                        int endY = y+4*AXIS_Y[axis];
+                        if(endX>=size || endY<0 || endY>=size) continue;
+                        for(int k = 0; k<5; k++) {
+                            int cell = board.cell(x+k*AXIS_X[axis], y+k*AXIS_Y[axis]);
+                            cells[count*5+k] = cell;
+                            counts[cell]++;
+                        }
+                        count++;
+                    }
+                }
+            }
+            through = new int[size*size][];
+            for(int cell = 0; cell<size*size; cell++) through[cell] = new int[counts[cell]];
+            Arrays.fill(counts, 0);
+            for(int window = 0; window<count; window++) {
+                for(int k = 0; k<5; k++) {
+                    int cell = cells[window*5+k];
+                    through[cell][counts[cell]++] = window;
+                }
+            }
+            stones = new int[2][count];
+            free[0] = count;
+            free[1] = count;
+            for(int i = 0; i<board.getMoveCount(); i++) {
+                int cell = board.getMove(i);
+                stoneAdded(cell, board.getColor(cell));
+            }
+            board.addListener(this);
+        }
+
+
+        /**
+         * @return true if the color has a window without a stone of the other color
+         */
+        boolean isLive(byte color) {
+
+            return free[StoneColor.opponent(color)-1]>0;
+        }
+
+
+        @Override
+        public void stoneAdded(int cell, byte color) {
+
+            for(int window : through[cell]) {
+                if(stones[color-1][window]++ == 0) free[color-1]--;
+            }
+        }
+
+
+        @Override
+        public void stoneRemoved(int cell, byte color) {
+
+            for(int window : through[cell]) {
+                if(--stones[color-1][window] == 0) free[color-1]++;
+            }
+        }
+    }
+
+}
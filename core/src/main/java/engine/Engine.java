@@ -0,0 +1,24 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.StoneColor;
+
+/**
+ * A computer player that runs headless, e.g. in a {@link Tournament}.
+ * Implementations are called by several threads at the same time, each call searches on boards of its own.
+ */
+public interface Engine
+{
+
+    /**
+     * Chooses a move.
+     *
+     * @param position {@link BoardSnapshot} to move in
+     * @param color    {@link StoneColor} of the player to move
+     * @param millis   time budget in milliseconds
+     *
+     * @return {@link SearchResult} with the move, -1 if there is none
+     */
+    SearchResult move(BoardSnapshot position, byte color, long millis);
+
+}
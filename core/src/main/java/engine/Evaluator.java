@@ -0,0 +1,66 @@
+package engine;
+
+import objects.Pattern;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+/**
+ * Static evaluation of a position for {@link Search}.
+ *
+ * The score is read from the pattern counts of a {@link ThreatIndex}, which are updated with every stone,
+ * so evaluating a position is a loop over the {@link Pattern} constants and independent of the board size.
+ */
+public final class Evaluator
+{
+
+    // weight of one empty cell and axis with the pattern, indexed by pattern
+    private static final int[] WEIGHTS = {0, 1, 4, 6, 20, 30, 200, 200, 1000, 0};
+    // weight of a pattern for move ordering, own patterns first and patterns of the opponent second
+    private static final int[] OWN     = {0, 2, 8, 12, 60, 80, 1000, 1000, 100000, 0};
+    private static final int[] OTHER   = {0, 1, 5, 8, 40, 60, 500, 500, 50000, 0};
+
+
+    private Evaluator() {
+
+    }
+
+
+    /**
+     * Evaluates a position for the player to move.
+     *
+     * @param index {@link ThreatIndex} of the position
+     * @param color {@link StoneColor} of the player to move
+     *
+     * @return positive if the position is good for the color
+     */
+    public static int evaluate(ThreatIndex index, byte color) {
+
+        byte opponent = StoneColor.opponent(color);
+        int  score    = 0;
+        for(byte pattern = Pattern.TWO; pattern<Pattern.COUNT; pattern++) {
+            score += WEIGHTS[pattern]*(index.getCount(color, pattern)-index.getCount(opponent, pattern));
+        }
+        return score;
+    }
+
+
+    /**
+     * Scores an empty cell for move ordering by the patterns both players would form there.
+     *
+     * @param index {@link ThreatIndex} of the position
+     * @param cell  cell index of an empty cell
+     * @param color {@link StoneColor} of the player to move
+     *
+     * @return higher for more urgent moves
+     */
+    public static int order(ThreatIndex index, int cell, byte color) {
+
+        byte opponent = StoneColor.opponent(color);
+        int  score    = 0;
+        for(int axis = 0; axis<4; axis++) {
+            score += OWN[index.getPattern(cell, axis, color)]+OTHER[index.getPattern(cell, axis, opponent)];
+        }
+        return score;
+    }
+
+}
@@ -0,0 +1,246 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.StoneColor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This is a score for every candidate move of a position, computed in the background for an analysis overlay.
+ *
+ * {@link #start(BoardSnapshot, byte)} hands the position to a worker thread, which scores all candidate moves with
+ * {@link Search#scoreMoves(byte, long, int)} at depth 1, 2 and so on. After every depth it publishes an immutable
+ * {@link Frame} through a volatile field, so the render thread reads the latest one with {@link #getFrame()}
+ * without any lock and without ever waiting, and the map gets more precise while the search deepens.
+ *
+ * A new position stops the search of the old one. A frame of the old position may still be published after that,
+ * so the reader compares {@link Frame#getHash()} with its position before drawing it.
+ * The worker runs at the lowest priority and with a share of one core, next to the computer player.
+ */
+public class Heatmap
+{
+
+    // scores beyond this are clipped for the heat, so a single winning move does not flatten all others
+    private static final int CLIP = 2000;
+
+    private final    ExecutorService         worker;
+    private final    TranspositionTable      table;
+    private final    long                    millis;
+    private final    int                     cpuShare;
+    // search of the latest position, null after cancel
+    private final    AtomicReference<Search> current = new AtomicReference<Search>();
+    private volatile Frame                   frame;
+
+
+    /**
+     * Constructor for Heatmap.
+     *
+     * @param table    {@link TranspositionTable} of the worker, may be shared with other searches, or null
+     * @param millis   time for one position in milliseconds, the map stays as it is afterwards
+     * @param cpuShare share of one core from 1 to 100 percent, see {@link Search#setCpuShare(int)}
+     */
+    public Heatmap(TranspositionTable table, long millis, int cpuShare) {
+
+        this.table = table;
+        this.millis = millis;
+        this.cpuShare = cpuShare;
+        this.worker = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "heatmap");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Starts to score the moves of a position and stops the old one. Returns at once.
+     *
+     * @param position {@link BoardSnapshot} to score
+     * @param color    {@link StoneColor} of the player to move
+     */
+    public void start(final BoardSnapshot position, final byte color) {
+
+        final Search search = new Search(position, table);
+        search.setCpuShare(cpuShare);
+        Search old = current.getAndSet(search);
+        if(old != null) old.stop();
+        worker.execute(new Runnable()
+        {
+
+            @Override
+            public void run() {
+
+                deepen(search, position.getHash(), color);
+            }
+        });
+    }
+
+
+    private void deepen(Search search, long hash, byte color) {
+
+        long end = System.nanoTime()+millis*1000000L;
+        for(int depth = 1; depth<=Search.MAX_DEPTH && current.get() == search; depth++) {
+            long left = (end-System.nanoTime())/1000000;
+            if(left<=0) break;
+            int[] scores = search.scoreMoves(color, left, depth);
+            if(scores == null) break;
+            Frame next = new Frame(hash, color, depth, scores);
+            frame = next;
+            if(next.isDecided()) break;
+        }
+    }
+
+
+    /**
+     * Latest map, of this or an earlier position. Safe to call from any thread, never blocks.
+     *
+     * @return {@link Frame} or null before the first depth is done
+     */
+    public Frame getFrame() {
+
+        return frame;
+    }
+
+
+    /**
+     * Stops the running search, the last map is kept.
+     */
+    public void cancel() {
+
+        Search old = current.getAndSet(null);
+        if(old != null) old.stop();
+    }
+
+
+    /**
+     * Ends the worker thread.
+     */
+    public void shutdown() {
+
+        cancel();
+        worker.shutdownNow();
+    }
+
+
+    /**
+     * Scores of all moves of one position at one depth. Immutable.
+     */
+    public static final class Frame
+    {
+
+        private final long  hash;
+        private final byte  color;
+        private final int   depth;
+        private final int[] scores;
+        private final int   best;
+        private final int   min;
+        private final int   max;
+
+
+        Frame(long hash, byte color, int depth, int[] scores) {
+
+            this.hash = hash;
+            this.color = color;
+            this.depth = depth;
+            this.scores = scores;
+            int bestCell = -1;
+            int low      = CLIP;
+            int high     = -CLIP;
+            for(int cell = 0; cell<scores.length; cell++) {
+                int score = scores[cell];
+                if(score == Search.NO_SCORE) continue;
+                if(bestCell<0 || score>scores[bestCell]) bestCell = cell;
+                low = Math.min(low, clip(score));
+                high = Math.max(high, clip(score));
+            }
+            this.best = bestCell;
+            this.min = low;
+            this.max = high;
+        }
+
+
+        private static int clip(int score) {
+
+            return Math.max(-CLIP, Math.min(CLIP, score));
+        }
+
+
+        /**
+         * @return {@link objects.GameBoard#getHash()} of the position
+         */
+        public long getHash() {
+
+            return hash;
+        }
+
+
+        /**
+         * @return {@link StoneColor} of the player to move
+         */
+        public byte getColor() {
+
+            return color;
+        }
+
+
+        public int getDepth() {
+
+            return depth;
+        }
+
+
+        /**
+         * @return cell of the best move, -1 if there is no move
+         */
+        public int getBestMove() {
+
+            return best;
+        }
+
+
+        /**
+         * @param cell cell index
+         *
+         * @return score of the move for the player to move, {@link Search#NO_SCORE} if it is no candidate
+         */
+        public int getScore(int cell) {
+
+            return scores[cell];
+        }
+
+
+        /**
+         * @param cell cell index
+         *
+         * @return 0 for the worst to 1 for the best candidate move, -1 if it is no candidate
+         */
+        public float getHeat(int cell) {
+
+            if(scores[cell] == Search.NO_SCORE) return -1;
+            if(max == min) return 1;
+            return (float) (clip(scores[cell])-min)/(max-min);
+        }
+
+
+        /**
+         * @return true if the best move wins or every move loses, deeper searches would not change the map
+         */
+        boolean isDecided() {
+
+            if(best<0) return true;
+            if(scores[best]>=Search.WIN-Search.MAX_DEPTH-1) return true;
+            return scores[best]<=-Search.WIN+Search.MAX_DEPTH+1;
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package engine;
+
+import objects.BoardListener;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.util.Arrays;
+
+/**
+ * This is a static evaluation that is kept up to date with every stone and read in constant time.
+ *
+ * The board is cut into all segments of five cells in a row, column or diagonal. Each segment has a base-3 code,
+ * one digit per cell: 0 empty, 1 black and 2 white. A precomputed table scores each of the 3^5 codes: a segment
+ * with stones of one color only scores for that color by the number of stones, a segment with both colors is dead.
+ * An open three lies in more live segments than a closed one, so open shapes score higher without being matched.
+ *
+ * A stone changes at most 20 segments, 5 on each axis. For each of them the old table score is subtracted,
+ * the digit of the cell added to the code and the new score added, without any branching on the stones around.
+ * The listener also follows {@link GameBoard#undo()}.
+ */
+public class LineEvaluator implements BoardListener
+{
+
+    public static final  int   LENGTH  = 5;
+    public static final  int   CODES   = 243;
+    // score of a segment by its stones of one color, the five is the win itself
+    private static final int[] WEIGHTS = {0, 1, 8, 64, 512, 8192};
+    // score of a segment code for black, white scores are negative
+    private static final int[] SCORES  = new int[CODES];
+    private static final int[] AXIS_X  = {1, 0, 1, 1};
+    private static final int[] AXIS_Y  = {0, 1, 1, -1};
+
+    static {
+        for(int code = 0; code<CODES; code++) {
+            int black = 0;
+            int white = 0;
+            for(int rest = code; rest>0; rest /= 3) {
+                if(rest%3 == StoneColor.BLACK) black++;
+                if(rest%3 == StoneColor.WHITE) white++;
+            }
+            SCORES[code] = black>0 && white>0 ? 0 : WEIGHTS[black]-WEIGHTS[white];
+        }
+    }
+
+    private final GameBoard board;
+    private final int       cells;
+    // base-3 code per segment
+    private final int[]     codes;
+    // segments of a cell and the place value of the cell in them, [(cell*4+axis)*LENGTH+k], -1 if there is none
+    private final int[]     segments;
+    private final int[]     values;
+    // sum of all segment scores for black
+    private       int       score;
+
+
+    /**
+     * Constructor for LineEvaluator. Reads the stones on the board and registers as its {@link BoardListener}.
+     *
+     * @param board {@link GameBoard}
+     */
+    public LineEvaluator(GameBoard board) {
+
+        this.board = board;
+        int size = board.getSize();
+        cells = size*size;
+        segments = new int[cells*4*LENGTH];
+        values = new int[cells*4*LENGTH];
+        Arrays.fill(segments, -1);
+
+        int count = 0;
+        for(int axis = 0; axis<4; axis++) {
+            for(int x = 0; x<size; x++) {
+                for(int y = 0; y<size; y++) {
+                    int endX = x+(LENGTH-1)*AXIS_X[axis];
+                    int endY = y+(LENGTH-1)*AXIS_Y[axis];
+                    if(endX>=size || endY<0 || endY>=size) continue;
+                    int value = 1;
+                    for(int k = 0; k<LENGTH; k++) {
+                        int cell = board.cell(x+k*AXIS_X[axis], y+k*AXIS_Y[axis]);
+                        // the segment is the k-th one of the cell on the axis that starts at most k cells before
+                        int slot = (cell*4+axis)*LENGTH+k;
+                        segments[slot] = count;
+                        values[slot] = value;
+                        value *= 3;
+                    }
+                    count++;
+                }
+            }
+        }
+        codes = new int[count];
+
+        for(int i = 0; i<board.getMoveCount(); i++) {
+            int cell = board.getMove(i);
+            stoneAdded(cell, board.getColor(cell));
+        }
+        board.addListener(this);
+    }
+
+
+    /**
+     * Evaluates the position.
+     *
+     * @param color {@link StoneColor} of the player to move
+     *
+     * @return positive if the position is good for the color
+     */
+    public int evaluate(byte color) {
+
+        return color == StoneColor.BLACK ? score : -score;
+    }
+
+
+    /**
+     * Recomputes the score of all segments from the board, to check the incremental updates.
+     *
+     * @return score for black
+     */
+    public int recompute() {
+
+        int[] fresh = new int[codes.length];
+        for(int cell = 0; cell<cells; cell++) {
+            byte color = board.getColor(cell);
+            if(color == StoneColor.EMPTY) continue;
+            for(int slot = cell*4*LENGTH; slot<(cell+1)*4*LENGTH; slot++) {
+                if(segments[slot]>=0) fresh[segments[slot]] += color*values[slot];
+            }
+        }
+        int sum = 0;
+        for(int code : fresh) sum += SCORES[code];
+        return sum;
+    }
+
+
+    @Override
+    public void stoneAdded(int cell, byte color) {
+
+        update(cell, color);
+    }
+
+
+    @Override
+    public void stoneRemoved(int cell, byte color) {
+
+        update(cell, -color);
+    }
+
+
+    private void update(int cell, int digit) {
+
+        for(int slot = cell*4*LENGTH; slot<(cell+1)*4*LENGTH; slot++) {
+            int segment = segments[slot];
+            if(segment<0) continue;
+            int code = codes[segment];
+            score -= SCORES[code];
+            code += digit*values[slot];
+            codes[segment] = code;
+            score += SCORES[code];
+        }
+    }
+
+}
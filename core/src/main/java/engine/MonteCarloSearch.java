@@ -0,0 +1,560 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.Pattern;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This is a Monte-Carlo tree search (UCT) that several threads grow together.
+ *
+ * The tree lives in a preallocated node pool of primitive arrays, a node is an index and its children are
+ * a block of consecutive indices. Visits and results are atomic counters, so the threads share the tree without locks.
+ * A thread counts its visit when it walks down a node and its result when it comes back, so a node that is
+ * being searched looks like a lost visit to the other threads until then (virtual loss) and they spread out.
+ * A node is expanded by the thread that wins a compare-and-set on its state.
+ *
+ * The children of a node are the candidate moves of a {@link MoveGenerator}, at most {@link #MAX_CHILDREN} of them
+ * ordered by {@link Evaluator#order(ThreatIndex, int, byte)}, which keeps the tree narrow on large boards.
+ * Playouts play random moves next to the stones but always make five or block a five when they can.
+ * Every thread plays on its own {@link GameBoard}, the workers and their boards are kept from search to search.
+ *
+ * {@link #advance(int)} plays a move at the root and keeps its subtree for the next search. The subtree is moved
+ * to the front of the pool in the order of the old indices, so a node never moves behind an unmoved one and
+ * the children of a node stay consecutive. All other nodes are free again.
+ * {@link #report(SearchResult)} gives the playouts per second and the memory per one million nodes.
+ */
+public class MonteCarloSearch
+{
+
+    public static final  int    MAX_CHILDREN   = 32;
+    // memory of a node: move, first child, child count, visits, wins and state
+    public static final  int    BYTES_PER_NODE = 6*4;
+    private static final int    NEW            = 0;
+    private static final int    BUSY           = 1;
+    private static final int    EXPANDED       = 2;
+    private static final int    TERMINAL       = 3;
+    // visits of a leaf before it is expanded
+    private static final int    EXPAND_VISITS  = 4;
+    // exploration constant of UCT
+    private static final double EXPLORATION    = 0.7;
+
+    private final int                capacity;
+    private final int                threads;
+    private final ExecutorService    pool;
+    private final int[]              move;
+    private final int[]              first;
+    private final int[]              count;
+    private final AtomicIntegerArray visits;
+    // results of the player who made the move of the node, 2 per win and 1 per draw
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray state;
+    private final AtomicInteger      size      = new AtomicInteger();
+    private final GameBoard          rootBoard;
+    private final Worker[]           workers;
+    // nodes of the kept subtree in advance, one bit per node, and the number of marked nodes before each word
+    private final long[]             marks;
+    private final int[]              ranks;
+    private       int                root;
+    private       byte               color;
+
+
+    /**
+     * Constructor for MonteCarloSearch.
+     *
+     * @param position {@link BoardSnapshot} of the root
+     * @param color    {@link StoneColor} of the player to move
+     * @param threads  number of search threads
+     * @param capacity maximal number of nodes, {@link #BYTES_PER_NODE} each
+     *
+     * @throws IllegalArgumentException if there are no threads or less than {@link #MAX_CHILDREN}+1 nodes
+     */
+    public MonteCarloSearch(BoardSnapshot position, byte color, int threads, int capacity) {
+
+        if(threads<1) throw new IllegalArgumentException("at least one search thread needed: "+threads);
+        if(capacity<=MAX_CHILDREN) throw new IllegalArgumentException("node pool too small: "+capacity);
+        this.capacity = capacity;
+        this.threads = threads;
+        this.color = color;
+        rootBoard = position.toBoard();
+        move = new int[capacity];
+        first = new int[capacity];
+        count = new int[capacity];
+        visits = new AtomicIntegerArray(capacity);
+        wins = new AtomicIntegerArray(capacity);
+        state = new AtomicIntegerArray(capacity);
+        marks = new long[(capacity+63)/64];
+        ranks = new int[marks.length];
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+
+            private int count;
+
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "monte carlo "+count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reset();
+        workers = new Worker[threads];
+        long seed = System.nanoTime();
+        for(int i = 0; i<threads; i++) workers[i] = new Worker(rootBoard.snapshot(), seed+i*0x9E3779B97F4A7C15L);
+    }
+
+
+    /**
+     * Searches until the time is up. Must not be called by two threads at the same time.
+     *
+     * @param millis time budget in milliseconds
+     *
+     * @return {@link SearchResult} with the most visited move, the win rate of the move in per mille as score,
+     * the deepest reached tree depth and the number of playouts as nodes; the move is -1 if there is none
+     */
+    public SearchResult search(long millis) {
+
+        long                start    = System.nanoTime();
+        final long          deadline = start+millis*1000000L;
+        List<Future<int[]>> futures  = new ArrayList<Future<int[]>>(threads);
+        for(final Worker worker : workers) {
+            futures.add(pool.submit(new Callable<int[]>()
+            {
+
+                @Override
+                public int[] call() {
+
+                    return worker.run(deadline);
+                }
+            }));
+        }
+
+        long playouts = 0;
+        int  depth    = 0;
+        try {
+            for(Future<int[]> future : futures) {
+                int[] result = future.get();
+                playouts += result[0];
+                depth = Math.max(depth, result[1]);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("search failed", e.getCause());
+        }
+
+        int best = -1;
+        if(state.get(root) == EXPANDED) {
+            for(int child = first[root]; child<first[root]+count[root]; child++) {
+                if(best<0 || visits.get(child)>visits.get(best)) best = child;
+            }
+        }
+        int score = best<0 || visits.get(best) == 0 ? 0 : (int) (500L*wins.get(best)/visits.get(best));
+        return new SearchResult(best<0 ? -1 : move[best], score, depth, playouts, System.nanoTime()-start);
+    }
+
+
+    /**
+     * Plays a move at the root and keeps its subtree.
+     *
+     * @param cell cell index of the move of the player to move
+     */
+    public void advance(int cell) {
+
+        int next = -1;
+        if(state.get(root) == EXPANDED) {
+            for(int child = first[root]; child<first[root]+count[root]; child++) {
+                if(move[child] == cell) next = child;
+            }
+        }
+        rootBoard.addStone(cell, color);
+        for(Worker worker : workers) worker.advance(cell, color);
+        color = StoneColor.opponent(color);
+        if(next<0) reset();
+        else compact(next);
+    }
+
+
+    /**
+     * Moves the subtree of a node to the front of the pool, the node becomes the root.
+     * Children have larger indices than their parent, so one pass in index order finds the subtree.
+     */
+    private void compact(int node) {
+
+        int end = Math.min(size.get(), capacity);
+        Arrays.fill(marks, 0);
+        marks[node >>> 6] |= 1L << node;
+        for(int i = node; i<end; i++) {
+            if((marks[i >>> 6] & 1L << i) == 0 || state.get(i) != EXPANDED) continue;
+            for(int child = first[i]; child<first[i]+count[i]; child++) marks[child >>> 6] |= 1L << child;
+        }
+        int kept = 0;
+        for(int word = 0; word<marks.length; word++) {
+            ranks[word] = kept;
+            kept += Long.bitCount(marks[word]);
+        }
+
+        // a node moves to its rank, which is never behind its old index
+        for(int i = node; i<end; i++) {
+            if((marks[i >>> 6] & 1L << i) == 0) continue;
+            int to = rank(i);
+            move[to] = move[i];
+            count[to] = count[i];
+            first[to] = state.get(i) == EXPANDED ? rank(first[i]) : 0;
+            visits.set(to, visits.get(i));
+            wins.set(to, wins.get(i));
+            state.set(to, state.get(i));
+        }
+        root = 0;
+        size.set(kept);
+    }
+
+
+    private int rank(int node) {
+
+        return ranks[node >>> 6]+Long.bitCount(marks[node >>> 6] & (1L << node)-1);
+    }
+
+
+    /**
+     * Ends the search threads.
+     */
+    public void shutdown() {
+
+        pool.shutdownNow();
+    }
+
+
+    /**
+     * @return number of nodes in the pool, including nodes of old roots
+     */
+    public int getNodes() {
+
+        return Math.min(size.get(), capacity);
+    }
+
+
+    /**
+     * @return visits of the root node
+     */
+    public int getRootVisits() {
+
+        return visits.get(root);
+    }
+
+
+    /**
+     * Describes the throughput and memory of a search.
+     *
+     * @param result {@link SearchResult} of {@link #search(long)}
+     *
+     * @return playouts per second, nodes and memory
+     */
+    public String report(SearchResult result) {
+
+        return result.getNodes()+" playouts in "+result.getMillis()+"ms, "+result.getNodesPerSecond()+" playouts/s, "
+               +getNodes()+" of "+capacity+" nodes, "+BYTES_PER_NODE+" MB per 1M nodes, pool "
+               +(long) capacity*BYTES_PER_NODE/(1024*1024)+" MB";
+    }
+
+
+    private void reset() {
+
+        root = 0;
+        size.set(1);
+        initNode(0, -1);
+    }
+
+
+    private void initNode(int node, int cell) {
+
+        move[node] = cell;
+        first[node] = 0;
+        count[node] = 0;
+        visits.set(node, 0);
+        wins.set(node, 0);
+        state.set(node, NEW);
+    }
+
+
+    /**
+     * A search thread with its own board.
+     */
+    private class Worker
+    {
+
+        private final GameBoard     board;
+        private final ThreatIndex   index;
+        private final MoveGenerator near;
+        private final MoveGenerator far;
+        private final int[]         path;
+        private final int[]         candidates;
+        private final int[]         scores;
+        private final int           center;
+        private       int           rootMoves;
+        private       long          random;
+
+
+        private Worker(BoardSnapshot position, long seed) {
+
+            board = position.toBoard();
+            index = new ThreatIndex(board);
+            near = new MoveGenerator(board, 1);
+            far = new MoveGenerator(board, 2);
+            int cells = board.getSize()*board.getSize();
+            path = new int[cells+1];
+            candidates = new int[cells];
+            scores = new int[cells];
+            rootMoves = board.getMoveCount();
+            center = board.cell(board.getSize()/2, board.getSize()/2);
+            random = seed == 0 ? 1 : seed;
+        }
+
+
+        /**
+         * Plays a move at the root, called between searches.
+         */
+        private void advance(int cell, byte toMove) {
+
+            board.addStone(cell, toMove);
+            rootMoves = board.getMoveCount();
+        }
+
+
+        /**
+         * @return playouts and deepest tree depth
+         */
+        private int[] run(long deadline) {
+
+            int playouts = 0;
+            int maxDepth = 0;
+            while(System.nanoTime()-deadline<0 && !Thread.currentThread().isInterrupted()) {
+                maxDepth = Math.max(maxDepth, iterate());
+                playouts++;
+            }
+            return new int[]{playouts, maxDepth};
+        }
+
+
+        /**
+         * Walks down the tree, expands a leaf, plays it out and counts the result on the way.
+         *
+         * @return depth of the leaf
+         */
+        private int iterate() {
+
+            int     node   = root;
+            byte    toMove = color;
+            int     depth  = 0;
+            byte    winner = StoneColor.EMPTY;
+            boolean done   = false;
+            path[depth] = node;
+            visits.incrementAndGet(node);
+            while(true) {
+                int nodeState = state.get(node);
+                if(nodeState == TERMINAL) {
+                    winner = StoneColor.opponent(toMove);
+                    done = true;
+                    break;
+                }
+                if(nodeState != EXPANDED) {
+                    // a leaf is played out until it has been visited often enough to be expanded
+                    if(nodeState != NEW || node != root && visits.get(node)<EXPAND_VISITS) break;
+                    if(!state.compareAndSet(node, NEW, BUSY)) break;
+                    if(!expand(node, toMove)) break;
+                }
+                int child = select(node);
+                visits.incrementAndGet(child);
+                board.addStone(move[child], toMove);
+                path[++depth] = child;
+                node = child;
+                if(board.checkWin(move[child])) {
+                    state.set(child, TERMINAL);
+                    winner = toMove;
+                    done = true;
+                    break;
+                }
+                toMove = StoneColor.opponent(toMove);
+            }
+            if(!done) winner = playout(toMove);
+
+            // the player of a node is the one who made its move
+            byte player = StoneColor.opponent(color);
+            for(int i = 0; i<=depth; i++) {
+                if(winner == player) wins.addAndGet(path[i], 2);
+                else if(winner == StoneColor.EMPTY) wins.incrementAndGet(path[i]);
+                player = StoneColor.opponent(player);
+            }
+            while(board.getMoveCount()>rootMoves) board.undo();
+            return depth;
+        }
+
+
+        /**
+         * Adds the children of a node in state {@link #BUSY}.
+         *
+         * @return false if the node stays a leaf, because the pool is full or there are no moves
+         */
+        private boolean expand(int node, byte toMove) {
+
+            int n = generate(toMove);
+            int block;
+            if(n == 0 || size.get()+n>capacity || (block = size.getAndAdd(n))+n>capacity) {
+                state.set(node, NEW);
+                return false;
+            }
+            for(int i = 0; i<n; i++) initNode(block+i, candidates[i]);
+            first[node] = block;
+            count[node] = n;
+            state.set(node, EXPANDED);
+            return true;
+        }
+
+
+        /**
+         * Candidate moves of a node, the best {@link #MAX_CHILDREN} by move order.
+         */
+        private int generate(byte toMove) {
+
+            if(board.getMoveCount() == 0) {
+                candidates[0] = center;
+                return 1;
+            }
+            byte    opponent = StoneColor.opponent(toMove);
+            boolean win      = index.getCount(toMove, Pattern.FIVE)>0;
+            boolean block    = !win && index.getCount(opponent, Pattern.FIVE)>0;
+            int     total    = far.copyTo(candidates, 0);
+            int     n        = 0;
+            for(int i = 0; i<total; i++) {
+                int cell = candidates[i];
+                if(win && !makesFive(cell, toMove) || block && !makesFive(cell, opponent)) continue;
+                if(toMove == StoneColor.BLACK && index.isForbidden(cell)) continue;
+                int s = Evaluator.order(index, cell, toMove);
+                if(n == MAX_CHILDREN) {
+                    // the list is full, the new move replaces the last one if it is better
+                    if(scores[n-1]>=s) continue;
+                    n--;
+                }
+                // insertion sort, n<=i so candidates[i] has been read already
+                int j = n++;
+                for(; j>0 && scores[j-1]<s; j--) {
+                    candidates[j] = candidates[j-1];
+                    scores[j] = scores[j-1];
+                }
+                candidates[j] = cell;
+                scores[j] = s;
+            }
+            return n;
+        }
+
+
+        private int select(int node) {
+
+            int    best      = first[node];
+            double bestValue = -1;
+            double log       = Math.log(Math.max(1, visits.get(node)));
+            for(int child = first[node]; child<first[node]+count[node]; child++) {
+                int n = visits.get(child);
+                // unvisited children in move order first
+                if(n == 0) return child;
+                double value = wins.get(child)/(2.0*n)+EXPLORATION*Math.sqrt(log/n);
+                if(value>bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+
+        /**
+         * Plays random moves next to the stones until the game is over, making and blocking fives first.
+         *
+         * @return {@link StoneColor} of the winner, {@link StoneColor#EMPTY} for a draw
+         */
+        private byte playout(byte toMove) {
+
+            while(board.getCounter()>0) {
+                byte opponent = StoneColor.opponent(toMove);
+                int  cell     = -1;
+                if(index.getCount(toMove, Pattern.FIVE)>0) cell = findFive(toMove);
+                else if(index.getCount(opponent, Pattern.FIVE)>0) cell = findFive(opponent);
+                if(cell<0) cell = randomMove(toMove);
+                if(cell<0) return StoneColor.EMPTY;
+                board.addStone(cell, toMove);
+                if(board.checkWin(cell)) return toMove;
+                toMove = opponent;
+            }
+            return StoneColor.EMPTY;
+        }
+
+
+        private int randomMove(byte toMove) {
+
+            MoveGenerator moves = near.getCount()>0 ? near : far;
+            if(moves.getCount() == 0) return board.getMoveCount() == 0 ? center : anyEmpty();
+            for(int tries = 0; tries<8; tries++) {
+                int cell = moves.get((int) (next()%moves.getCount()));
+                if(toMove != StoneColor.BLACK || !index.isForbidden(cell)) return cell;
+            }
+            return -1;
+        }
+
+
+        private int anyEmpty() {
+
+            for(int cell = 0; cell<board.getSize()*board.getSize(); cell++) {
+                if(board.checkValid(cell)) return cell;
+            }
+            return -1;
+        }
+
+
+        private int findFive(byte player) {
+
+            for(int i = 0; i<far.getCount(); i++) {
+                if(makesFive(far.get(i), player)) return far.get(i);
+            }
+            return -1;
+        }
+
+
+        private boolean makesFive(int cell, byte player) {
+
+            for(int axis = 0; axis<4; axis++) {
+                if(index.getPattern(cell, axis, player) == Pattern.FIVE) return true;
+            }
+            return false;
+        }
+
+
+        /**
+         * xorshift random number, not negative.
+         */
+        private long next() {
+
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return random >>> 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,366 @@
+package engine;
+
+import objects.BoardListener;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * This is a small quantized neural network that evaluates a position, updated with every stone like an NNUE.
+ *
+ * The input is one feature per cell and color, seen from each player: own stone or stone of the opponent.
+ * The first layer sums the int16 weight rows of all stones into one accumulator per player. A stone adds
+ * or removes one row in each accumulator, so the first layer, by far the largest, costs two row additions
+ * per move instead of a pass over the board. To evaluate, the accumulator of the player to move and the one
+ * of the opponent are clipped to 0..127 and concatenated, then a hidden layer with int8 weights and int32 sums
+ * is clipped again and an int8 output layer gives the score.
+ *
+ * Weights are stored as 1/64 of their value, so a sum of an int8 layer is shifted right by {@link #WEIGHT_SHIFT}
+ * to get back to the range of the activations, where 127 is 1. The score has the scale of {@link Evaluator}.
+ *
+ * The project compiles for Java 7, so the incubating Vector API is not available. The loops are kept simple
+ * over flat short and byte arrays, so that the JIT compiler can vectorize the accumulator updates itself.
+ * A {@link Network} is immutable and shared by the evaluators of all threads, each board has its own evaluator.
+ */
+public class NeuralEvaluator implements BoardListener
+{
+
+    public static final  int WEIGHT_SHIFT = 6;
+    // largest activation, stands for 1
+    private static final int ONE          = 127;
+
+    private final GameBoard board;
+    private final Network   network;
+    private final int       hidden;
+    // first layer sums per player, indexed by color-1
+    private final short[][] accumulators;
+    // clipped activations of the first and the second layer
+    private final byte[]    input;
+    private final byte[]    output;
+
+
+    /**
+     * Constructor for NeuralEvaluator. Reads the stones on the board and registers as its {@link BoardListener}.
+     *
+     * @param board   {@link GameBoard}
+     * @param network {@link Network} for the size of the board
+     *
+     * @throws IllegalArgumentException if the network is for another board size
+     */
+    public NeuralEvaluator(GameBoard board, Network network) {
+
+        if(network.size != board.getSize()) {
+            throw new IllegalArgumentException("network for size "+network.size+", board size "+board.getSize());
+        }
+        this.board = board;
+        this.network = network;
+        hidden = network.hidden;
+        accumulators = new short[2][];
+        input = new byte[2*hidden];
+        output = new byte[network.hidden2];
+        refresh();
+        board.addListener(this);
+    }
+
+
+    /**
+     * Recomputes the accumulators from the stones on the board.
+     */
+    public void refresh() {
+
+        accumulators[0] = network.biases1.clone();
+        accumulators[1] = network.biases1.clone();
+        for(int i = 0; i<board.getMoveCount(); i++) {
+            int cell = board.getMove(i);
+            stoneAdded(cell, board.getColor(cell));
+        }
+    }
+
+
+    /**
+     * Evaluates the position.
+     *
+     * @param color {@link StoneColor} of the player to move
+     *
+     * @return positive if the position is good for the color
+     */
+    public int evaluate(byte color) {
+
+        clip(accumulators[color-1], input, 0);
+        clip(accumulators[StoneColor.opponent(color)-1], input, hidden);
+
+        byte[] weights2 = network.weights2;
+        int    inputs   = 2*hidden;
+        for(int j = 0; j<output.length; j++) {
+            int sum    = network.biases2[j];
+            int offset = j*inputs;
+            for(int i = 0; i<inputs; i++) sum += input[i]*weights2[offset+i];
+            output[j] = (byte) Math.max(0, Math.min(ONE, sum >> WEIGHT_SHIFT));
+        }
+        int sum = network.bias3;
+        for(int j = 0; j<output.length; j++) sum += output[j]*network.weights3[j];
+        return sum >> WEIGHT_SHIFT;
+    }
+
+
+    private void clip(short[] accumulator, byte[] activations, int offset) {
+
+        for(int i = 0; i<hidden; i++) {
+            activations[offset+i] = (byte) Math.max(0, Math.min(ONE, accumulator[i]));
+        }
+    }
+
+
+    /**
+     * @return accumulator of a player, for tests
+     */
+    short[] getAccumulator(byte color) {
+
+        return accumulators[color-1];
+    }
+
+
+    @Override
+    public void stoneAdded(int cell, byte color) {
+
+        update(cell, color, 1);
+    }
+
+
+    @Override
+    public void stoneRemoved(int cell, byte color) {
+
+        update(cell, color, -1);
+    }
+
+
+    private void update(int cell, byte color, int sign) {
+
+        short[] weights1 = network.weights1;
+        int     cells    = network.size*network.size;
+        for(byte player = StoneColor.BLACK; player<=StoneColor.WHITE; player++) {
+            short[] accumulator = accumulators[player-1];
+            // own stones in the first rows, stones of the opponent after them
+            int     offset      = ((color == player ? 0 : cells)+cell)*hidden;
+            if(sign>0) {
+                for(int i = 0; i<hidden; i++) accumulator[i] += weights1[offset+i];
+            } else {
+                for(int i = 0; i<hidden; i++) accumulator[i] -= weights1[offset+i];
+            }
+        }
+    }
+
+
+    /**
+     * Evaluates random positions and prints the evaluations per second, each with the update of a stone.
+     *
+     * @param args optional weights file, random weights for 15x15 otherwise
+     *
+     * @throws IOException if the weights can not be read
+     */
+    public static void main(String[] args) throws IOException {
+
+        Network network = args.length>0 ? Network.read(new File(args[0])) : Network.random(GameBoard.DEFAULT_SIZE, 64, 16, 1);
+        GameBoard       board     = new GameBoard(network.size);
+        NeuralEvaluator evaluator = new NeuralEvaluator(board, network);
+        Random          random    = new Random(1);
+        int             cells     = network.size*network.size;
+        for(int round = 0; round<5; round++) {
+            long start       = System.nanoTime();
+            long evaluations = 0;
+            long check       = 0;
+            while(System.nanoTime()-start<1000000000L) {
+                // a random game of up to half the board, evaluated after every stone and taken back
+                byte color = StoneColor.BLACK;
+                while(board.getMoveCount()<cells/2) {
+                    int cell = random.nextInt(cells);
+                    if(board.getColor(cell) != StoneColor.EMPTY) continue;
+                    board.addStone(cell, color);
+                    color = StoneColor.opponent(color);
+                    check += evaluator.evaluate(color);
+                    evaluations++;
+                }
+                while(board.undo()) {
+                    // the evaluator follows the board
+                }
+            }
+            double seconds = (System.nanoTime()-start)/1e9;
+            System.out.println(String.format("%d evaluations/s (%d)", (long) (evaluations/seconds), check));
+        }
+    }
+
+
+    /**
+     * Weights of a {@link NeuralEvaluator} for one board size. Immutable.
+     *
+     * The file is big-endian: {@link #MAGIC}, board size, first and second hidden size,
+     * then the int16 weights and biases of the first layer, the int8 weights and int32 biases of the second
+     * and the int8 weights and the int32 bias of the output. 15x15 with 64 and 16 hidden takes 60 KB.
+     */
+    public static final class Network
+    {
+
+        public static final int MAGIC = 0x474E4E55;
+
+        private final int     size;
+        private final int     hidden;
+        private final int     hidden2;
+        // [(feature)*hidden+i], features own cells first, then cells of the opponent
+        private final short[] weights1;
+        private final short[] biases1;
+        // [j*2*hidden+i]
+        private final byte[]  weights2;
+        private final int[]   biases2;
+        private final byte[]  weights3;
+        private final int     bias3;
+
+
+        /**
+         * Constructor for Network.
+         *
+         * @param size     board size
+         * @param weights1 first layer, 2*size*size rows of hidden weights
+         * @param biases1  first layer, hidden biases
+         * @param weights2 second layer, hidden2 rows of 2*hidden weights
+         * @param biases2  second layer, hidden2 biases
+         * @param weights3 output layer, hidden2 weights
+         * @param bias3    output bias
+         *
+         * @throws IllegalArgumentException if the lengths do not fit together
+         */
+        public Network(int size, short[] weights1, short[] biases1, byte[] weights2, int[] biases2, byte[] weights3, int bias3) {
+
+            this.size = size;
+            this.hidden = biases1.length;
+            this.hidden2 = biases2.length;
+            if(hidden<1 || hidden2<1 || weights1.length != 2*size*size*hidden || weights2.length != hidden2*2*hidden ||
+               weights3.length != hidden2) {
+                throw new IllegalArgumentException("layer sizes do not fit");
+            }
+            this.weights1 = weights1.clone();
+            this.biases1 = biases1.clone();
+            this.weights2 = weights2.clone();
+            this.biases2 = biases2.clone();
+            this.weights3 = weights3.clone();
+            this.bias3 = bias3;
+        }
+
+
+        /**
+         * Random weights, e.g. as the start of a training or for benchmarks.
+         *
+         * @param size    board size
+         * @param hidden  size of the first layer
+         * @param hidden2 size of the second layer
+         * @param seed    seed of the {@link Random}
+         *
+         * @return {@link Network}
+         */
+        public static Network random(int size, int hidden, int hidden2, long seed) {
+
+            Random  random   = new Random(seed);
+            short[] weights1 = new short[2*size*size*hidden];
+            short[] biases1  = new short[hidden];
+            byte[]  weights2 = new byte[hidden2*2*hidden];
+            int[]   biases2  = new int[hidden2];
+            byte[]  weights3 = new byte[hidden2];
+            for(int i = 0; i<weights1.length; i++) weights1[i] = (short) (random.nextInt(33)-16);
+            for(int i = 0; i<hidden; i++) biases1[i] = (short) random.nextInt(32);
+            random.nextBytes(weights2);
+            for(int i = 0; i<hidden2; i++) biases2[i] = random.nextInt(1 << WEIGHT_SHIFT);
+            random.nextBytes(weights3);
+            return new Network(size, weights1, biases1, weights2, biases2, weights3, 0);
+        }
+
+
+        /**
+         * Reads the weights from a file.
+         *
+         * @param path weights file
+         *
+         * @return {@link Network}
+         *
+         * @throws IOException if the file can not be read, is no weights file or is damaged
+         */
+        public static Network read(File path) throws IOException {
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+            try {
+                if(in.readInt() != MAGIC) throw new IOException("no network: "+path);
+                int size    = in.readInt();
+                int hidden  = in.readInt();
+                int hidden2 = in.readInt();
+                if(size<1 || size>100 || hidden<1 || hidden>4096 || hidden2<1 || hidden2>4096) {
+                    throw new IOException("network is damaged: "+path);
+                }
+                short[] weights1 = readShorts(in, 2*size*size*hidden);
+                short[] biases1  = readShorts(in, hidden);
+                byte[]  weights2 = new byte[hidden2*2*hidden];
+                in.readFully(weights2);
+                int[] biases2 = new int[hidden2];
+                for(int i = 0; i<hidden2; i++) biases2[i] = in.readInt();
+                byte[] weights3 = new byte[hidden2];
+                in.readFully(weights3);
+                int bias3 = in.readInt();
+                if(in.read() != -1) throw new IOException("network is damaged: "+path);
+                return new Network(size, weights1, biases1, weights2, biases2, weights3, bias3);
+            } catch(EOFException e) {
+                throw new IOException("network is damaged: "+path, e);
+            } finally {
+                in.close();
+            }
+        }
+
+
+        private static short[] readShorts(DataInputStream in, int count) throws IOException {
+
+            short[] values = new short[count];
+            for(int i = 0; i<count; i++) values[i] = in.readShort();
+            return values;
+        }
+
+
+        /**
+         * Writes the weights to a file.
+         *
+         * @param path weights file, overwritten if it exists
+         *
+         * @throws IOException if writing fails
+         */
+        public void write(File path) throws IOException {
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(size);
+                out.writeInt(hidden);
+                out.writeInt(hidden2);
+                for(short weight : weights1) out.writeShort(weight);
+                for(short bias : biases1) out.writeShort(bias);
+                out.write(weights2);
+                for(int bias : biases2) out.writeInt(bias);
+                out.write(weights3);
+                out.writeInt(bias3);
+            } finally {
+                out.close();
+            }
+        }
+
+
+        public int getSize() {
+
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,404 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+import objects.Zobrist;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This is an opening book for the computer player, mainly for the positions of the Swap2 opening.
+ * {@link Swap2Decision} looks up the white move after the first three stones, the computer player every later move.
+ *
+ * The book is a binary file of entries sorted by key, which is mapped into memory instead of read:
+ * opening it costs no parsing and no heap, the operating system pages in what is probed.
+ * A probe is a binary search over the entries, O(log n), which takes microseconds even for millions of entries.
+ *
+ * The key of a position is its canonical hash: the smallest {@link Zobrist} hash of the eight rotations and
+ * reflections of the board, with the player to move mixed in. Symmetric positions share one entry, the move is
+ * stored for the orientation of the smallest hash and turned back on a probe.
+ *
+ * The file has a header of 16 bytes: magic number, board size and number of entries.
+ * Every entry has 16 bytes: key, move and score. A key may have several entries, a probe returns the best one.
+ * The file is written with a {@link Writer}, one mapping holds at most {@link #MAX_ENTRIES} entries.
+ */
+public class OpeningBook implements Closeable
+{
+
+    public static final  int  MAGIC        = 0x474F4D42;
+    public static final  int  HEADER_BYTES = 16;
+    public static final  int  ENTRY_BYTES  = 16;
+    public static final  int  MAX_ENTRIES  = (Integer.MAX_VALUE-HEADER_BYTES)/ENTRY_BYTES;
+    // xor into the key when white is to move, like in Search
+    private static final long WHITE_KEY    = 0x6A09E667F3BCC909L;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int              size;
+    private final int              entries;
+
+
+    /**
+     * Constructor for OpeningBook. Maps the file read-only, nothing is read yet.
+     *
+     * @param path book file written by a {@link Writer}
+     *
+     * @throws IOException if the file can not be opened or is no opening book
+     */
+    public OpeningBook(File path) throws IOException {
+
+        file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if(length<HEADER_BYTES || length>Integer.MAX_VALUE) throw new IOException("no opening book: "+path);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if(buffer.getInt(0) != MAGIC) throw new IOException("no opening book: "+path);
+            size = buffer.getInt(4);
+            long count = buffer.getLong(8);
+            if(count<0 || HEADER_BYTES+count*ENTRY_BYTES != length) throw new IOException("opening book is damaged: "+path);
+            entries = (int) count;
+        } catch(IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+
+    public int getSize() {
+
+        return size;
+    }
+
+
+    public int getEntries() {
+
+        return entries;
+    }
+
+
+    /**
+     * Looks up the book move of a position.
+     *
+     * @param position {@link BoardSnapshot}
+     * @param color    {@link StoneColor} of the player to move
+     *
+     * @return cell index of the move with the best score, -1 if the position is not in the book
+     */
+    public int probe(BoardSnapshot position, byte color) {
+
+        SearchResult entry = lookup(position, color);
+        return entry == null ? -1 : entry.getMove();
+    }
+
+
+    /**
+     * Looks up the book move of a position together with its score.
+     *
+     * @param position {@link BoardSnapshot}
+     * @param color    {@link StoneColor} of the player to move
+     *
+     * @return {@link SearchResult} of depth 0 with the move with the best score, null if the position is not in the book
+     */
+    public SearchResult lookup(BoardSnapshot position, byte color) {
+
+        if(position.getSize() != size) return null;
+        int  symmetry = symmetry(position, color);
+        long key      = key(position, color, symmetry);
+
+        // first entry with a key not less than the searched one
+        int low  = 0;
+        int high = entries;
+        while(low<high) {
+            int middle = (low+high) >>> 1;
+            if(buffer.getLong(HEADER_BYTES+middle*ENTRY_BYTES)<key) low = middle+1;
+            else high = middle;
+        }
+
+        int best      = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for(int i = low; i<entries && buffer.getLong(HEADER_BYTES+i*ENTRY_BYTES) == key; i++) {
+            int move  = buffer.getInt(HEADER_BYTES+i*ENTRY_BYTES+8);
+            int score = buffer.getInt(HEADER_BYTES+i*ENTRY_BYTES+12);
+            if(move<0 || move>=size*size) continue;
+            int cell = inverse(move, symmetry, size);
+            // a stone on the cell means another position with the same hash
+            if(score>bestScore && position.getColor(cell) == StoneColor.EMPTY) {
+                best = cell;
+                bestScore = score;
+            }
+        }
+        return best<0 ? null : new SearchResult(best, bestScore, 0, 0, 0);
+    }
+
+
+    /**
+     * Unmaps nothing, the mapping lives until it is garbage collected, but the file is closed.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+
+        file.close();
+    }
+
+
+    /**
+     * Canonical key of a position, equal for all its rotations and reflections.
+     *
+     * @param position {@link BoardSnapshot}
+     * @param color    {@link StoneColor} of the player to move
+     *
+     * @return 64 bit key
+     */
+    public static long key(BoardSnapshot position, byte color) {
+
+        return key(position, color, symmetry(position, color));
+    }
+
+
+    /**
+     * Symmetry with the smallest hash, 0 to 7.
+     */
+    private static int symmetry(BoardSnapshot position, byte color) {
+
+        int  best = 0;
+        long min  = key(position, color, 0);
+        for(int symmetry = 1; symmetry<8; symmetry++) {
+            long key = key(position, color, symmetry);
+            if(key<min) {
+                min = key;
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+
+    private static long key(BoardSnapshot position, byte color, int symmetry) {
+
+        int  size = position.getSize();
+        long key  = color == StoneColor.WHITE ? WHITE_KEY : 0;
+        for(int i = 0; i<position.getMoveCount(); i++) {
+            int cell  = position.getMove(i);
+            int moved = transform(cell, symmetry, size);
+            key ^= Zobrist.key(moved/size, moved%size, position.getColor(cell));
+        }
+        return key;
+    }
+
+
+    /**
+     * Cell after a symmetry: bit 2 swaps x and y, then bit 0 mirrors x and bit 1 mirrors y.
+     */
+    private static int transform(int cell, int symmetry, int size) {
+
+        int x = cell/size;
+        int y = cell%size;
+        if((symmetry & 4) != 0) {
+            int swap = x;
+            x = y;
+            y = swap;
+        }
+        if((symmetry & 1) != 0) x = size-1-x;
+        if((symmetry & 2) != 0) y = size-1-y;
+        return x*size+y;
+    }
+
+
+    private static int inverse(int cell, int symmetry, int size) {
+
+        int x = cell/size;
+        int y = cell%size;
+        if((symmetry & 1) != 0) x = size-1-x;
+        if((symmetry & 2) != 0) y = size-1-y;
+        if((symmetry & 4) != 0) {
+            int swap = x;
+            x = y;
+            y = swap;
+        }
+        return x*size+y;
+    }
+
+
+    /**
+     * Collects book entries on the heap and writes them sorted to a book file.
+     */
+    public static class Writer
+    {
+
+        private final int    size;
+        private       long[] keys   = new long[1024];
+        // move in the high and score in the low 32 bits
+        private       long[] values = new long[1024];
+        private       int    count;
+
+
+        /**
+         * Constructor for Writer.
+         *
+         * @param size board size of the positions
+         */
+        public Writer(int size) {
+
+            this.size = size;
+        }
+
+
+        public int getCount() {
+
+            return count;
+        }
+
+
+        /**
+         * Adds a book move.
+         *
+         * @param position {@link BoardSnapshot} of the board size of the writer
+         * @param color    {@link StoneColor} of the player to move
+         * @param move     cell index of the move
+         * @param score    score of the move, higher is better
+         *
+         * @throws IllegalArgumentException if the board size or the move does not fit
+         * @throws IllegalStateException    if the book is full
+         */
+        public void add(BoardSnapshot position, byte color, int move, int score) {
+
+            if(position.getSize() != size) throw new IllegalArgumentException("board size "+position.getSize()+" instead of "+size);
+            if(move<0 || move>=size*size) throw new IllegalArgumentException("no cell: "+move);
+            if(count == MAX_ENTRIES) throw new IllegalStateException("opening book is full");
+            if(count == keys.length) {
+                int capacity = (int) Math.min(2L*count, MAX_ENTRIES);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            int symmetry = symmetry(position, color);
+            keys[count] = key(position, color, symmetry);
+            values[count] = (long) transform(move, symmetry, size) << 32 | score & 0xFFFFFFFFL;
+            count++;
+        }
+
+
+        /**
+         * Sorts the entries and writes the book file.
+         *
+         * @param path book file, overwritten if it exists
+         *
+         * @throws IOException if writing fails
+         */
+        public void write(File path) throws IOException {
+
+            sort(0, count-1);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(size);
+                out.writeLong(count);
+                for(int i = 0; i<count; i++) {
+                    out.writeLong(keys[i]);
+                    out.writeLong(values[i]);
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+
+        /**
+         * Quicksort of keys and values by key.
+         */
+        private void sort(int low, int high) {
+
+            while(high-low>16) {
+                long pivot = keys[(low+high) >>> 1];
+                int  i     = low;
+                int  j     = high;
+                while(i<=j) {
+                    while(keys[i]<pivot) i++;
+                    while(keys[j]>pivot) j--;
+                    if(i<=j) swap(i++, j--);
+                }
+                // recursion on the smaller part keeps the stack small
+                if(j-low<high-i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for(int i = low+1; i<=high; i++) {
+                for(int j = i; j>low && keys[j-1]>keys[j]; j--) swap(j-1, j);
+            }
+        }
+
+
+        private void swap(int i, int j) {
+
+            long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+
+    }
+
+
+    /**
+     * Builds a book for the first choice of Swap2: every placement of two black and one white stone
+     * near the center is searched with white to move.
+     *
+     * @param args book file, optional milliseconds per position (default 200) and radius around the center (default 2)
+     *
+     * @throws IOException if writing fails
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length<1) {
+            System.out.println("usage: OpeningBook <file> [millis] [radius]");
+            return;
+        }
+        long millis = args.length>1 ? Long.parseLong(args[1]) : 200;
+        int  radius = args.length>2 ? Integer.parseInt(args[2]) : 2;
+
+        GameBoard          board  = new GameBoard();
+        int                center = board.getSize()/2;
+        int                side   = 2*radius+1;
+        Writer             writer = new Writer(board.getSize());
+        Set<Long>          seen   = new HashSet<Long>();
+        TranspositionTable table  = new TranspositionTable(64);
+        for(int a = 0; a<side*side; a++) {
+            for(int b = a+1; b<side*side; b++) {
+                for(int w = 0; w<side*side; w++) {
+                    if(w == a || w == b) continue;
+                    board.addStone(board.cell(center-radius+a/side, center-radius+a%side), StoneColor.BLACK);
+                    board.addStone(board.cell(center-radius+b/side, center-radius+b%side), StoneColor.BLACK);
+                    board.addStone(board.cell(center-radius+w/side, center-radius+w%side), StoneColor.WHITE);
+                    BoardSnapshot position = board.snapshot();
+                    if(seen.add(key(position, StoneColor.WHITE))) {
+                        SearchResult result = new Search(position, table).search(StoneColor.WHITE, millis);
+                        writer.add(position, StoneColor.WHITE, result.getMove(), result.getScore());
+                    }
+                    for(int i = 0; i<3; i++) board.undo();
+                }
+            }
+        }
+        writer.write(new File(args[0]));
+        System.out.println(writer.getCount()+" positions written to "+args[0]);
+    }
+
+}
@@ -0,0 +1,233 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This is a parallel search on all cores with Lazy SMP.
+ *
+ * Every thread runs its own {@link Search} on its own copy of the {@link GameBoard}, all threads share one
+ * {@link TranspositionTable}. The threads do not talk to each other, they only find the results of the others
+ * in the table. The first thread searches every depth in the usual order. The helper threads skip depths by
+ * {@link #skip(int, int)}, each with its own pattern, and search another of the best root moves first,
+ * so the threads are at different depths and in different subtrees and fill the table for each other
+ * instead of searching the same positions at the same time.
+ * As soon as any thread is done, because the budget is used up, the maximal depth is reached or a win is found,
+ * all others are stopped and the result of the deepest completed iteration of all threads is returned.
+ *
+ * The threads are started once and reused for every search, {@link #shutdown()} ends them.
+ * {@link #scalingReport(BoardSnapshot, byte, long, int)} compares the nodes per second from 1 to N threads.
+ */
+public class ParallelSearch
+{
+
+    // depth skipping of the helper threads: thread i skips the depths d with (d+phase)/size odd,
+    // the patterns repeat after 20 helpers
+    private static final int[] SKIP_SIZE  = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final int                threads;
+    private final TranspositionTable table;
+    private final ExecutorService    pool;
+
+
+    /**
+     * Constructor for ParallelSearch.
+     *
+     * @param threads number of search threads, e.g. {@link Runtime#availableProcessors()}
+     * @param table   {@link TranspositionTable} shared by the threads
+     *
+     * @throws IllegalArgumentException if there are no threads
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+
+        if(threads<1) throw new IllegalArgumentException("at least one search thread needed: "+threads);
+        this.threads = threads;
+        this.table = table;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+
+            private int count;
+
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "search "+count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    public int getThreads() {
+
+        return threads;
+    }
+
+
+    public TranspositionTable getTable() {
+
+        return table;
+    }
+
+
+    /**
+     * Searches the best move with all threads.
+     *
+     * @param position {@link BoardSnapshot} to search from
+     * @param color    {@link StoneColor} of the player to move
+     * @param millis   time budget in milliseconds
+     *
+     * @return {@link SearchResult} of the deepest search, with the nodes of all threads
+     */
+    public SearchResult search(BoardSnapshot position, final byte color, final long millis) {
+
+        return search(position, color, millis, Search.MAX_DEPTH);
+    }
+
+
+    /**
+     * Searches the best move with all threads up to a depth.
+     *
+     * @param position {@link BoardSnapshot} to search from
+     * @param color    {@link StoneColor} of the player to move
+     * @param millis   time budget in milliseconds
+     * @param maxDepth maximal depth in plies
+     *
+     * @return {@link SearchResult} of the deepest search, with the nodes of all threads
+     */
+    public SearchResult search(BoardSnapshot position, final byte color, final long millis, final int maxDepth) {
+
+        long                            start     = System.nanoTime();
+        final Search[]                  searches  = new Search[threads];
+        CompletionService<SearchResult> completed = new ExecutorCompletionService<SearchResult>(pool);
+        List<Future<SearchResult>>      futures   = new ArrayList<Future<SearchResult>>(threads);
+        for(int i = 0; i<threads; i++) searches[i] = new Search(position, table);
+        for(int i = 0; i<threads; i++) {
+            final Search search = searches[i];
+            final int    thread = i;
+            futures.add(completed.submit(new Callable<SearchResult>()
+            {
+
+                @Override
+                public SearchResult call() {
+
+                    return search.search(color, millis, maxDepth, thread);
+                }
+            }));
+        }
+
+        SearchResult best  = null;
+        long         nodes = 0;
+        try {
+            // the first thread to finish ends the search of all
+            best = completed.take().get();
+            for(Search search : searches) search.stop();
+            for(Future<SearchResult> future : futures) {
+                SearchResult result = future.get();
+                nodes += result.getNodes();
+                if(result.getDepth()>best.getDepth()) best = result;
+            }
+        } catch(InterruptedException e) {
+            for(Search search : searches) search.stop();
+            Thread.currentThread().interrupt();
+            if(best == null) throw new IllegalStateException("search interrupted", e);
+        } catch(ExecutionException e) {
+            for(Search search : searches) search.stop();
+            throw new IllegalStateException("search failed", e.getCause());
+        }
+        return new SearchResult(best.getMove(), best.getScore(), best.getDepth(), nodes, System.nanoTime()-start);
+    }
+
+
+    /**
+     * Whether a thread leaves out a depth of its iterative deepening. The first thread never skips,
+     * helper thread i skips every other block of {@link #SKIP_SIZE} depths, shifted by {@link #SKIP_PHASE}.
+     *
+     * @param thread index of the thread, 0 for the first
+     * @param depth  depth of the iteration
+     *
+     * @return true if the thread does not search the depth
+     */
+    static boolean skip(int thread, int depth) {
+
+        if(thread == 0) return false;
+        int i = (thread-1)%SKIP_SIZE.length;
+        return (depth+SKIP_PHASE[i])/SKIP_SIZE[i]%2 != 0;
+    }
+
+
+    /**
+     * Ends the search threads. Must not be called while a search is running.
+     */
+    public void shutdown() {
+
+        pool.shutdownNow();
+    }
+
+
+    /**
+     * Searches the same position with 1, 2, 4 and so on up to a number of threads, each with an empty table,
+     * and reports the nodes per second and the speedup over one thread. A search with one thread before
+     * warms up the JIT compiler, so the first line is not slower than it should be.
+     *
+     * @param position   {@link BoardSnapshot} to search from
+     * @param color      {@link StoneColor} of the player to move
+     * @param millis     time budget per search in milliseconds
+     * @param maxThreads largest number of threads
+     *
+     * @return one line per thread count
+     */
+    public static String scalingReport(BoardSnapshot position, byte color, long millis, int maxThreads) {
+
+        // the first search only warms up the JIT compiler
+        new Search(position).search(color, millis);
+
+        StringBuilder report = new StringBuilder("threads        nps  speedup  depth\n");
+        long          single = 1;
+        for(int threads = 1; threads<=maxThreads; threads = threads<maxThreads ? Math.min(2*threads, maxThreads) : threads+1) {
+            ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(64));
+            SearchResult   result = search.search(position, color, millis);
+            search.shutdown();
+            if(threads == 1) single = Math.max(1, result.getNodesPerSecond());
+            report.append(String.format("%7d %10d %8.2f %6d%n", threads, result.getNodesPerSecond(),
+                                        (double) result.getNodesPerSecond()/single, result.getDepth()));
+        }
+        return report.toString();
+    }
+
+
+    /**
+     * Prints the {@link #scalingReport(BoardSnapshot, byte, long, int)} for an opening position.
+     *
+     * @param args optional number of threads and milliseconds per search,
+     *             by default all cores and 2000
+     */
+    public static void main(String[] args) {
+
+        int  threads = args.length>0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis  = args.length>1 ? Long.parseLong(args[1]) : 2000;
+
+        GameBoard board = new GameBoard();
+        board.addStone(board.cell(7, 7), StoneColor.BLACK);
+        board.addStone(board.cell(7, 8), StoneColor.WHITE);
+        board.addStone(board.cell(8, 8), StoneColor.BLACK);
+        board.addStone(board.cell(6, 6), StoneColor.WHITE);
+        System.out.print(scalingReport(board.snapshot(), StoneColor.BLACK, millis, threads));
+    }
+
+}
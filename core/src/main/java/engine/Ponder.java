@@ -0,0 +1,197 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This is pondering: the computer player keeps thinking while the opponent chooses a move.
+ *
+ * After the computer has moved, {@link #start(BoardSnapshot, byte)} predicts the reply of the opponent with a short
+ * {@link Search} and then searches the position after that reply on a background thread of its own, until it is
+ * stopped. When the opponent has moved, {@link #hit(BoardSnapshot, long)} lets that search go on for the time budget
+ * if the prediction was right and returns its result, which is deeper than a new search would get. Otherwise the
+ * pondering is cancelled, but its work stays in the shared {@link TranspositionTable} and helps the next search.
+ *
+ * The background search only takes a share of the processor, see {@link Search#setCpuShare(int)}.
+ * {@link #start(BoardSnapshot, byte)} and {@link #cancel()} never wait, so they can be called from the render thread.
+ */
+public class Ponder
+{
+
+    // time budget of the prediction
+    private static final long PREDICT_MILLIS = 100;
+    // time budget of the background search, it is stopped long before
+    private static final long PONDER_MILLIS  = 24L*60*60*1000;
+
+    private final    TranspositionTable   table;
+    private final    int                  cpuShare;
+    private final    ExecutorService      thread;
+    private          Future<SearchResult> task;
+    // position after the predicted move, null until it is known
+    private          BoardSnapshot        predicted;
+    private          Search               current;
+    // counts the cancels, a task only publishes while it is the latest one
+    private          int                  generation;
+
+
+    /**
+     * Constructor for Ponder.
+     *
+     * @param table    {@link TranspositionTable} shared with the searches of the computer player
+     * @param cpuShare share of one core for pondering from 1 to 100
+     *
+     * @throws IllegalArgumentException if the share is out of range
+     */
+    public Ponder(TranspositionTable table, int cpuShare) {
+
+        if(cpuShare<1 || cpuShare>100) throw new IllegalArgumentException("CPU share must be 1 to 100 %: "+cpuShare);
+        this.table = table;
+        this.cpuShare = cpuShare;
+        thread = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "ponder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Starts pondering. A running pondering is cancelled first.
+     *
+     * @param position {@link BoardSnapshot} after the move of the computer, the opponent is to move
+     * @param color    {@link StoneColor} of the computer
+     */
+    public synchronized void start(final BoardSnapshot position, final byte color) {
+
+        cancel();
+        final int id = generation;
+        task = thread.submit(new Callable<SearchResult>()
+        {
+
+            @Override
+            public SearchResult call() {
+
+                byte   opponent = StoneColor.opponent(color);
+                Search guess    = new Search(position, table);
+                if(!publish(id, guess, null)) return null;
+                SearchResult prediction = guess.search(opponent, PREDICT_MILLIS);
+                if(prediction.getMove()<0 || prediction.isMate()) return null;
+
+                GameBoard board = position.toBoard();
+                board.addStone(prediction.getMove(), opponent);
+                if(board.checkWin(prediction.getMove())) return null;
+                BoardSnapshot next   = board.snapshot();
+                Search        search = new Search(next, table);
+                if(!publish(id, search, next)) return null;
+                return search.search(color, PONDER_MILLIS);
+            }
+        });
+    }
+
+
+    /**
+     * Makes a throttled search the current one, unless pondering was cancelled since the task was started.
+     * Under the lock, so {@link #cancel()} either stops the search or it is not started.
+     */
+    private synchronized boolean publish(int id, Search search, BoardSnapshot next) {
+
+        if(generation != id) return false;
+        search.setCpuShare(cpuShare);
+        current = search;
+        predicted = next;
+        return true;
+    }
+
+
+    /**
+     * The opponent has moved. If it was the predicted move, the pondering search gets the full processor
+     * and goes on for the time budget. Blocks, so it must not be called on the render thread.
+     *
+     * @param position {@link BoardSnapshot} after the move of the opponent
+     * @param millis   time budget in milliseconds
+     *
+     * @return {@link SearchResult} of the pondering search, null if the prediction was wrong or there was no pondering
+     */
+    public SearchResult hit(BoardSnapshot position, long millis) {
+
+        Future<SearchResult> future;
+        Search               search;
+        synchronized(this) {
+            future = task;
+            search = current;
+            if(future == null || predicted == null || predicted.getHash() != position.getHash()
+               || predicted.getMoveCount() != position.getMoveCount()) {
+                cancel();
+                return null;
+            }
+            task = null;
+            predicted = null;
+        }
+
+        search.setCpuShare(100);
+        try {
+            try {
+                return future.get(millis, TimeUnit.MILLISECONDS);
+            } catch(TimeoutException e) {
+                search.stop();
+                return future.get();
+            }
+        } catch(InterruptedException e) {
+            search.stop();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("pondering failed", e.getCause());
+        }
+    }
+
+
+    /**
+     * Stops pondering without waiting for the thread.
+     */
+    public synchronized void cancel() {
+
+        generation++;
+        predicted = null;
+        if(current != null) current.stop();
+        if(task != null) task.cancel(true);
+        task = null;
+    }
+
+
+    /**
+     * @return true if pondering was started and neither hit nor cancelled since
+     */
+    public synchronized boolean isPondering() {
+
+        return task != null;
+    }
+
+
+    /**
+     * Cancels pondering and ends the thread.
+     */
+    public void shutdown() {
+
+        cancel();
+        thread.shutdownNow();
+    }
+
+}
@@ -0,0 +1,445 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.Pattern;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+import java.util.Arrays;
+
+/**
+ * This is the computer player: a negamax alpha-beta search with iterative deepening on its own {@link GameBoard}.
+ *
+ * The search deepens one ply at a time until the time budget is used up, the maximal depth is reached
+ * or a forced win is found. The clock is checked every {@link #CHECK_NODES} positions and an unfinished
+ * iteration is abandoned, so {@link #search(byte, long)} returns within the budget plus a few microseconds.
+ * {@link #stop()} ends a search early from another thread.
+ *
+ * Positions are evaluated by {@link Evaluator} from a {@link ThreatIndex}, candidate moves come from a
+ * {@link MoveGenerator} and are ordered by their patterns. When the player to move can make five it wins,
+ * when only the opponent can, only the blocking moves are searched. Under {@link objects.RuleEnum#RENJU}
+ * forbidden moves of black are skipped.
+ * Before the first iteration a {@link ThreatSolver} looks for a victory by continuous fours, which is
+ * often far deeper than the alpha-beta search could see.
+ *
+ * With a {@link TranspositionTable} positions that were searched before, in this or an earlier search
+ * or by another thread, are cut off or at least start with their best move.
+ *
+ * {@link #setCpuShare(int)} lets a background search such as {@link Ponder} pause regularly.
+ *
+ * The class depends on nothing from libGDX and is used by the UI as well as headless.
+ * One instance must only be used by one thread at a time.
+ */
+public class Search
+{
+
+    public static final  int  WIN         = 1000000;
+    public static final  int  MAX_DEPTH   = 32;
+    // score of a cell that is no candidate move in scoreMoves
+    public static final  int  NO_SCORE    = Integer.MIN_VALUE;
+    private static final int  INFINITY    = WIN+1;
+    // the clock is read after every CHECK_NODES+1 positions
+    private static final int  CHECK_NODES = 1023;
+    // xor into the hash when white is to move
+    private static final long WHITE_KEY   = 0x6A09E667F3BCC909L;
+    // share of the time budget for the VCF check at the root, at most VCF_MILLIS
+    private static final int  VCF_SHARE   = 10;
+    private static final long VCF_MILLIS  = 200;
+    // a throttled search runs for SLICE nanoseconds and then pauses
+    private static final long SLICE       = 5000000;
+    // helper threads of a ParallelSearch start with one of the best ROOT_SPREAD root moves
+    private static final int  ROOT_SPREAD = 4;
+
+    private final    GameBoard                   board;
+    private final    ThreatIndex                 index;
+    private final    MoveGenerator               generator;
+    private final    ThreatSolver                solver;
+    private final    TranspositionTable          table;
+    // table statistics of this search, added to the table after each search
+    private final    TranspositionTable.Counters counters = new TranspositionTable.Counters();
+    private final    int                         center;
+    // candidate moves and their order scores per ply
+    private final    int[][]                     moves;
+    private final    int[][]                     scores;
+    private          long                        nodes;
+    private          long                        deadline;
+    private          boolean                     aborted;
+    private          long                        sliceStart;
+    private volatile boolean                     stopped;
+    private volatile int                         cpuShare = 100;
+
+
+    /**
+     * Constructor for Search. Plays the position on a board of its own.
+     *
+     * @param position {@link BoardSnapshot} to search from
+     */
+    public Search(BoardSnapshot position) {
+
+        this(position, null);
+    }
+
+
+    /**
+     * Constructor for Search with a {@link TranspositionTable}, which may be shared with other searches.
+     *
+     * @param position {@link BoardSnapshot} to search from
+     * @param table    {@link TranspositionTable} or null
+     */
+    public Search(BoardSnapshot position, TranspositionTable table) {
+
+        this.table = table;
+        board = position.toBoard();
+        index = new ThreatIndex(board);
+        generator = new MoveGenerator(board, 2);
+        solver = new ThreatSolver(board, index, generator);
+        center = board.cell(board.getSize()/2, board.getSize()/2);
+        int cells = board.getSize()*board.getSize();
+        moves = new int[MAX_DEPTH+1][cells];
+        scores = new int[MAX_DEPTH+1][cells];
+    }
+
+
+    /**
+     * Board of the search, e.g. to play the moves of the game on it between searches.
+     *
+     * @return {@link GameBoard} owned by this search
+     */
+    public GameBoard getBoard() {
+
+        return board;
+    }
+
+
+    /**
+     * Searches the best move up to {@link #MAX_DEPTH}, see {@link #search(byte, long, int)}.
+     *
+     * @param color  {@link StoneColor} of the player to move
+     * @param millis time budget in milliseconds
+     *
+     * @return {@link SearchResult}
+     */
+    public SearchResult search(byte color, long millis) {
+
+        return search(color, millis, MAX_DEPTH);
+    }
+
+
+    /**
+     * Searches the best move with iterative deepening.
+     * The best move of the last completed depth is returned, or a better one found at the next depth before the time ran out.
+     *
+     * @param color    {@link StoneColor} of the player to move
+     * @param millis   time budget in milliseconds
+     * @param maxDepth maximal depth in plies, at most {@link #MAX_DEPTH}
+     *
+     * @return {@link SearchResult}, the move is -1 if the board is full
+     */
+    public SearchResult search(byte color, long millis, int maxDepth) {
+
+        return search(color, millis, maxDepth, 0);
+    }
+
+
+    /**
+     * Searches with iterative deepening as one thread of a {@link ParallelSearch}. A helper thread, all but
+     * thread 0, searches another of the first {@link #ROOT_SPREAD} root moves first and skips the depths
+     * of {@link ParallelSearch#skip(int, int)}, except depth 1 and the maximal depth.
+     */
+    SearchResult search(byte color, long millis, int maxDepth, int thread) {
+
+        long start = System.nanoTime();
+        deadline = start+millis*1000000L;
+        nodes = 0;
+        aborted = false;
+        sliceStart = start;
+
+        byte opponent  = StoneColor.opponent(color);
+        int  count     = generate(0, color);
+        if(count == 0) {
+            // no candidate is left if the opponent has five and black may not block, any empty cell is played then
+            int score = index.getCount(opponent, Pattern.FIVE)>0 ? -(WIN-2) : 0;
+            return new SearchResult(anyMove(color), score, 0, nodes, System.nanoTime()-start);
+        }
+        if(count>1) {
+            int[] vcf = solver.solveVcf(color, MAX_DEPTH/2, Math.min(millis/VCF_SHARE, VCF_MILLIS));
+            nodes += solver.getNodes();
+            if(vcf != null) return new SearchResult(vcf[0], WIN-vcf.length, vcf.length, nodes, System.nanoTime()-start);
+        }
+        int  bestMove  = moves[0][0];
+        int  bestScore = 0;
+        int  depth     = 0;
+        int  last      = Math.min(maxDepth, MAX_DEPTH);
+        if(thread>0 && count>1) moveToFront(0, count, moves[0][thread%Math.min(count, ROOT_SPREAD)]);
+        for(int d = 1; d<=last; d++) {
+            if(d>1 && d<last && ParallelSearch.skip(thread, d)) continue;
+            int alpha = -INFINITY;
+            int move  = -1;
+            for(int i = 0; i<count; i++) {
+                int cell = moves[0][i];
+                board.addStone(cell, color);
+                int score = board.checkWin(cell) ? WIN-1 : -negamax(d-1, 1, -INFINITY, -alpha, opponent);
+                board.undo();
+                if(aborted) break;
+                if(score>alpha) {
+                    alpha = score;
+                    move = cell;
+                }
+            }
+            // a move that beat the fully searched best move of the last depth is kept
+            if(move>=0) {
+                bestMove = move;
+                bestScore = alpha;
+            }
+            if(aborted) break;
+            depth = d;
+            if(Math.abs(bestScore)>=WIN-MAX_DEPTH-1) break;
+            moveToFront(0, count, bestMove);
+        }
+        if(table != null) table.add(counters);
+        return new SearchResult(bestMove, bestScore, depth, nodes, System.nanoTime()-start);
+    }
+
+
+    /**
+     * Scores every candidate move at one depth with a full window, so that each score is exact and not only a bound,
+     * e.g. for a {@link Heatmap}. Calling it with growing depths on a search with a {@link TranspositionTable}
+     * reuses the earlier depths like iterative deepening.
+     *
+     * @param color  {@link StoneColor} of the player to move
+     * @param millis time budget in milliseconds
+     * @param depth  depth in plies, from 1 to {@link #MAX_DEPTH}
+     *
+     * @return score per cell for the color, {@link #NO_SCORE} for cells that are no candidates,
+     * null if the time ran out or the search was stopped
+     */
+    public int[] scoreMoves(byte color, long millis, int depth) {
+
+        long start = System.nanoTime();
+        deadline = start+millis*1000000L;
+        nodes = 0;
+        aborted = false;
+        sliceStart = start;
+
+        int[] result = new int[board.getSize()*board.getSize()];
+        Arrays.fill(result, NO_SCORE);
+        byte opponent = StoneColor.opponent(color);
+        int  count    = generate(0, color);
+        for(int i = 0; i<count; i++) {
+            int cell = moves[0][i];
+            board.addStone(cell, color);
+            int score = board.checkWin(cell) ? WIN-1 : -negamax(depth-1, 1, -INFINITY, INFINITY, opponent);
+            board.undo();
+            if(aborted || stopped) break;
+            result[cell] = score;
+        }
+        if(table != null) table.add(counters);
+        return aborted || stopped ? null : result;
+    }
+
+
+    /**
+     * Stops the running search and all later searches of this instance. Safe to call from any thread,
+     * also before the search has started.
+     */
+    public void stop() {
+
+        stopped = true;
+    }
+
+
+    /**
+     * Limits the processor time of the search. The search pauses after every few milliseconds, so that it
+     * runs for the given share of the time. The pauses count against the time budget. Safe to call from any thread,
+     * also while the search is running.
+     *
+     * @param percent share of one core from 1 to 100
+     *
+     * @throws IllegalArgumentException if the share is out of range
+     */
+    public void setCpuShare(int percent) {
+
+        if(percent<1 || percent>100) throw new IllegalArgumentException("CPU share must be 1 to 100 %: "+percent);
+        cpuShare = percent;
+    }
+
+
+    private int negamax(int depth, int ply, int alpha, int beta, byte color) {
+
+        if((++nodes & CHECK_NODES) == 0) {
+            if(cpuShare<100) throttle();
+            if(stopped || System.nanoTime()-deadline>=0) aborted = true;
+        }
+        if(aborted) return 0;
+        if(index.getCount(color, Pattern.FIVE)>0) return WIN-ply-1;
+        if(board.getCounter() == 0) return 0;
+        if(depth == 0 || ply>=MAX_DEPTH) return Evaluator.evaluate(index, color);
+
+        long key       = color == StoneColor.WHITE ? board.getHash() ^ WHITE_KEY : board.getHash();
+        long entry     = table == null ? 0 : table.probe(key, counters);
+        int  firstMove = -1;
+        if(entry != 0) {
+            firstMove = TranspositionTable.move(entry);
+            if(TranspositionTable.depth(entry)>=depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT) return score;
+                if(bound == TranspositionTable.LOWER && score>=beta) return score;
+                if(bound == TranspositionTable.UPPER && score<=alpha) return score;
+            }
+        }
+
+        int count = generate(ply, color);
+        if(count == 0) {
+            // the opponent makes five in the next move if no blocking move is allowed
+            if(index.getCount(StoneColor.opponent(color), Pattern.FIVE)>0) return -(WIN-ply-2);
+            return Evaluator.evaluate(index, color);
+        }
+        if(firstMove>=0) moveToFront(ply, count, firstMove);
+
+        byte opponent = StoneColor.opponent(color);
+        int  start    = alpha;
+        int  best     = -INFINITY;
+        int  bestMove = -1;
+        for(int i = 0; i<count; i++) {
+            int cell = moves[ply][i];
+            board.addStone(cell, color);
+            int score = board.checkWin(cell) ? WIN-ply-1 : -negamax(depth-1, ply+1, -beta, -alpha, opponent);
+            board.undo();
+            if(aborted) return 0;
+            if(score>best) {
+                best = score;
+                bestMove = cell;
+                if(score>alpha) {
+                    alpha = score;
+                    if(alpha>=beta) break;
+                }
+            }
+        }
+        if(table != null) {
+            int bound = best>=beta ? TranspositionTable.LOWER : best>start ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(best, ply), depth, bound, counters);
+        }
+        return best;
+    }
+
+
+    /**
+     * Pauses when the search has run for a slice, long enough to keep to the {@link #cpuShare}.
+     * An interrupt stops the search.
+     */
+    private void throttle() {
+
+        long now = System.nanoTime();
+        if(now-sliceStart<SLICE) return;
+        long pause = SLICE*(100-cpuShare)/cpuShare;
+        try {
+            Thread.sleep(pause/1000000, (int) (pause%1000000));
+        } catch(InterruptedException e) {
+            stopped = true;
+            Thread.currentThread().interrupt();
+        }
+        sliceStart = System.nanoTime();
+    }
+
+
+    /**
+     * Mate scores are stored as distance from the position instead of from the root.
+     */
+    private static int toTable(int score, int ply) {
+
+        if(score>=WIN-MAX_DEPTH-1) return score+ply;
+        if(score<=-WIN+MAX_DEPTH+1) return score-ply;
+        return score;
+    }
+
+
+    private static int fromTable(int score, int ply) {
+
+        if(score>=WIN-MAX_DEPTH-1) return score-ply;
+        if(score<=-WIN+MAX_DEPTH+1) return score+ply;
+        return score;
+    }
+
+
+    /**
+     * Fills the move list of a ply with the candidate moves, ordered by {@link Evaluator#order(ThreatIndex, int, byte)}.
+     * Only the winning moves are kept if the player can make five, otherwise only the blocking moves
+     * if the opponent could make five. Forbidden moves are dropped.
+     *
+     * @return number of moves
+     */
+    private int generate(int ply, byte color) {
+
+        int[] list  = moves[ply];
+        int[] score = scores[ply];
+        if(board.getMoveCount() == 0) {
+            list[0] = center;
+            return 1;
+        }
+
+        int     candidates = generator.copyTo(list, 0);
+        byte    opponent   = StoneColor.opponent(color);
+        boolean win        = index.getCount(color, Pattern.FIVE)>0;
+        boolean block      = !win && index.getCount(opponent, Pattern.FIVE)>0;
+        int     count      = 0;
+        for(int i = 0; i<candidates; i++) {
+            int cell = list[i];
+            if(win && !makesFive(cell, color)) continue;
+            if(block && !makesFive(cell, opponent)) continue;
+            if(color == StoneColor.BLACK && index.isForbidden(cell)) continue;
+            int s = Evaluator.order(index, cell, color);
+            // insertion sort, count<=i so list[i] has been read already
+            int j = count++;
+            for(; j>0 && score[j-1]<s; j--) {
+                list[j] = list[j-1];
+                score[j] = score[j-1];
+            }
+            list[j] = cell;
+            score[j] = s;
+        }
+        return count;
+    }
+
+
+    /**
+     * Finds a move for a position without candidate moves.
+     *
+     * @return an empty cell, one that is not forbidden if there is one, or -1 if the board is full
+     */
+    private int anyMove(byte color) {
+
+        int move = -1;
+        for(int cell = 0; cell<board.getSize()*board.getSize(); cell++) {
+            if(board.getColor(cell) != StoneColor.EMPTY) continue;
+            if(color != StoneColor.BLACK || !index.isForbidden(cell)) return cell;
+            if(move<0) move = cell;
+        }
+        return move;
+    }
+
+
+    private boolean makesFive(int cell, byte color) {
+
+        for(int axis = 0; axis<4; axis++) {
+            if(index.getPattern(cell, axis, color) == Pattern.FIVE) return true;
+        }
+        return false;
+    }
+
+
+    private void moveToFront(int ply, int count, int move) {
+
+        int[] list = moves[ply];
+        for(int i = 0; i<count; i++) {
+            if(list[i] == move) {
+                System.arraycopy(list, 0, list, 1, i);
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+}
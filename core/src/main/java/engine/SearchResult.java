@@ -0,0 +1,90 @@
+package engine;
+
+/**
+ * Immutable result of a {@link Search}.
+ */
+public final class SearchResult
+{
+
+    private final int  move;
+    private final int  score;
+    private final int  depth;
+    private final long nodes;
+    private final long nanos;
+
+
+    /**
+     * Constructor for SearchResult.
+     *
+     * @param move  cell index of the best move
+     * @param score score of the move for the player to move
+     * @param depth last completed depth
+     * @param nodes number of searched positions
+     * @param nanos time of the search in nanoseconds
+     */
+    public SearchResult(int move, int score, int depth, long nodes, long nanos) {
+
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+
+    public int getMove() {
+
+        return move;
+    }
+
+
+    public int getScore() {
+
+        return score;
+    }
+
+
+    public int getDepth() {
+
+        return depth;
+    }
+
+
+    public long getNodes() {
+
+        return nodes;
+    }
+
+
+    public long getMillis() {
+
+        return nanos/1000000L;
+    }
+
+
+    /**
+     * @return searched positions per second
+     */
+    public long getNodesPerSecond() {
+
+        return nanos == 0 ? 0 : nodes*1000000000L/nanos;
+    }
+
+
+    /**
+     * @return true if the score is a forced win or loss
+     */
+    public boolean isMate() {
+
+        return Math.abs(score)>=Search.WIN-Search.MAX_DEPTH-1;
+    }
+
+
+    @Override
+    public String toString() {
+
+        return "move "+move+" score "+score+" depth "+depth+" nodes "+nodes+" time "+getMillis()+"ms nps "
+               +getNodesPerSecond();
+    }
+
+}
@@ -0,0 +1,348 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.StoneColor;
+import objects.Swap2Enum;
+import objects.ThreatIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This is the decision of a computer player in the Swap2 opening, see {@link Swap2Enum}.
+ *
+ * After the first three stones the second player either takes black ({@link Swap2Enum#CHOICE_BLACK}),
+ * takes white and places the next white stone ({@link Swap2Enum#CHOICE_WHITE}), or places one black and one white
+ * stone and lets the first player choose ({@link Swap2Enum#PLAYER_PASS}). After a pass the first player chooses
+ * between black and white only.
+ *
+ * Both colors are judged by one search with white to move: its score is the value of white and the negated score
+ * the value of black. For a pass the best pairs of a black and a white cell by {@link Evaluator#order} are played and
+ * searched with white to move, the opponent then takes the better color, so the pair that leaves the smallest score
+ * is the best one. All searches run at the same time on a pool of threads and share the time budget;
+ * searches still running at the end are stopped and the pairs that were not searched are left out.
+ *
+ * A search only sees a few plies of a long game, so a small advantage of one color is no reason to commit to it.
+ * A color is taken if it is at least {@link #BALANCED} ahead or if no pair balances the position better,
+ * otherwise the position is passed on with the most balanced pair.
+ * The confidence grows from 0 to 1 with the advantage of the color taken, or with the balance of the pair passed.
+ */
+public class Swap2Decision
+{
+
+    // advantage in score points from which a color is taken instead of passing
+    public static final  int    BALANCED   = 40;
+    // cells per color tried for the pair of a pass
+    public static final  int    CANDIDATES = 4;
+    // score difference at which the confidence is about 0.76
+    private static final double SCALE      = 100;
+    // time for stopping the searches and collecting the results in milliseconds
+    private static final long   MARGIN     = 20;
+
+    private final int             threads;
+    private final ExecutorService pool;
+
+
+    /**
+     * Constructor for Swap2Decision.
+     *
+     * @param threads number of searches at the same time
+     *
+     * @throws IllegalArgumentException if there are no threads
+     */
+    public Swap2Decision(int threads) {
+
+        if(threads<1) throw new IllegalArgumentException("at least one search thread needed: "+threads);
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+
+            private int count;
+
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "swap2 "+count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * Decision of the second player after the first three stones: black, white or pass.
+     *
+     * @param position {@link BoardSnapshot} with two black and one white stone
+     * @param millis   time budget in milliseconds
+     *
+     * @return {@link Choice} with the stone to place for {@link Swap2Enum#CHOICE_WHITE},
+     * or the black and the white stone for {@link Swap2Enum#PLAYER_PASS}
+     */
+    public Choice decide(BoardSnapshot position, long millis) {
+
+        return decide(position, millis, null);
+    }
+
+
+    /**
+     * Decision of the second player after the first three stones, with the white move and score from an
+     * {@link OpeningBook} if it has the position. Only the pairs of a pass are searched then.
+     *
+     * @param position {@link BoardSnapshot} with two black and one white stone
+     * @param millis   time budget in milliseconds
+     * @param book     {@link OpeningBook} with white to move, or null
+     *
+     * @return {@link Choice} as for {@link #decide(BoardSnapshot, long)}
+     */
+    public Choice decide(BoardSnapshot position, long millis, OpeningBook book) {
+
+        return evaluate(position, millis, true, book == null ? null : book.lookup(position, StoneColor.WHITE));
+    }
+
+
+    /**
+     * Decision of the first player after a pass: black or white.
+     *
+     * @param position {@link BoardSnapshot} with three black and two white stones
+     * @param millis   time budget in milliseconds
+     *
+     * @return {@link Choice} with the stone to place for {@link Swap2Enum#CHOICE_WHITE}
+     */
+    public Choice choose(BoardSnapshot position, long millis) {
+
+        return evaluate(position, millis, false, null);
+    }
+
+
+    /**
+     * Ends the search threads. Must not be called while a decision is running.
+     */
+    public void shutdown() {
+
+        pool.shutdownNow();
+    }
+
+
+    private Choice evaluate(BoardSnapshot position, long millis, boolean pass, SearchResult booked) {
+
+        long        start  = System.nanoTime();
+        List<int[]> pairs  = pass ? pairs(position) : new ArrayList<int[]>();
+        int         tasks  = 1+pairs.size();
+        // the first search is left out for a book move
+        int         first  = booked == null ? 0 : 1;
+        // the searches run in rounds of one per thread, each round gets its share of the budget
+        int         rounds = Math.max(1, (tasks-first+threads-1)/threads);
+        long        budget = Math.max(1, (millis-MARGIN)/rounds);
+
+        final Search[]             searches = new Search[tasks];
+        List<Future<SearchResult>> futures  = new ArrayList<Future<SearchResult>>(tasks);
+        searches[0] = new Search(position);
+        for(int i = 1; i<tasks; i++) {
+            GameBoard board = position.toBoard();
+            board.addStone(pairs.get(i-1)[0], StoneColor.BLACK);
+            board.addStone(pairs.get(i-1)[1], StoneColor.WHITE);
+            searches[i] = new Search(board.snapshot());
+        }
+        for(int i = first; i<tasks; i++) futures.add(pool.submit(searcher(searches[i], budget)));
+
+        SearchResult[] results = new SearchResult[tasks];
+        long           end     = start+Math.max(1, millis-MARGIN)*1000000L;
+        results[0] = booked;
+        try {
+            for(int i = first; i<tasks; i++) {
+                try {
+                    results[i] = futures.get(i-first).get(Math.max(0, end-System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch(TimeoutException e) {
+                    for(Search search : searches) search.stop();
+                    results[i] = futures.get(i-first).get();
+                }
+            }
+        } catch(InterruptedException e) {
+            for(Search search : searches) search.stop();
+            Thread.currentThread().interrupt();
+            if(results[0] == null) throw new IllegalStateException("swap2 decision interrupted", e);
+        } catch(ExecutionException e) {
+            for(Search search : searches) search.stop();
+            throw new IllegalStateException("swap2 decision failed", e.getCause());
+        }
+
+        // scores for white to move, also for the one to decide after choosing white
+        int white = results[0].getScore();
+        int color = Math.abs(white);
+        int best  = -1;
+        for(int i = 1; i<tasks; i++) {
+            SearchResult result = results[i];
+            if(result == null || result.getDepth() == 0) continue;
+            if(best<0 || Math.abs(result.getScore())<Math.abs(results[best].getScore())) best = i;
+        }
+        int passScore = best<0 ? -Search.WIN : -Math.abs(results[best].getScore());
+
+        if(best>0 && color<BALANCED && -passScore<color) {
+            return new Choice(Swap2Enum.PLAYER_PASS, 1-Math.tanh(-passScore/SCALE), -white, white, passScore,
+                              pairs.get(best-1));
+        }
+        double confidence = results[0].isMate() ? 1 : Math.tanh(color/SCALE);
+        if(white>0) return new Choice(Swap2Enum.CHOICE_WHITE, confidence, -white, white, passScore, results[0].getMove());
+        return new Choice(Swap2Enum.CHOICE_BLACK, confidence, -white, white, passScore);
+    }
+
+
+    private static Callable<SearchResult> searcher(final Search search, final long millis) {
+
+        return new Callable<SearchResult>()
+        {
+
+            @Override
+            public SearchResult call() {
+
+                return search.search(StoneColor.WHITE, millis);
+            }
+        };
+    }
+
+
+    /**
+     * Pairs of a black and a white cell for a pass, from the cells each color would like most.
+     *
+     * @return black cell and white cell per pair
+     */
+    private static List<int[]> pairs(BoardSnapshot position) {
+
+        GameBoard     board     = position.toBoard();
+        ThreatIndex   index     = new ThreatIndex(board);
+        MoveGenerator generator = new MoveGenerator(board, 1);
+        int[]         blacks    = best(index, generator, StoneColor.BLACK);
+        int[]         whites    = best(index, generator, StoneColor.WHITE);
+
+        List<int[]> pairs = new ArrayList<int[]>();
+        for(int black : blacks) {
+            for(int white : whites) {
+                if(black != white) pairs.add(new int[]{black, white});
+            }
+        }
+        return pairs;
+    }
+
+
+    private static int[] best(ThreatIndex index, MoveGenerator generator, byte color) {
+
+        int[] cells  = new int[CANDIDATES];
+        int[] scores = new int[CANDIDATES];
+        int   count  = 0;
+        for(int i = 0; i<generator.getCount(); i++) {
+            int cell = generator.get(i);
+            if(color == StoneColor.BLACK && index.isForbidden(cell)) continue;
+            int score = Evaluator.order(index, cell, color);
+            if(count == CANDIDATES && score<=scores[CANDIDATES-1]) continue;
+            // insertion into the sorted best cells, the worst one falls out
+            int k = count<CANDIDATES ? count++ : CANDIDATES-1;
+            while(k>0 && scores[k-1]<score) {
+                cells[k] = cells[k-1];
+                scores[k] = scores[k-1];
+                k--;
+            }
+            cells[k] = cell;
+            scores[k] = score;
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+
+    /**
+     * Result of a {@link Swap2Decision}.
+     * Scores are from the view of the one who decides.
+     */
+    public static final class Choice
+    {
+
+        private final Swap2Enum choice;
+        private final double    confidence;
+        private final int       blackScore;
+        private final int       whiteScore;
+        private final int       passScore;
+        private final int[]     moves;
+
+
+        Choice(Swap2Enum choice, double confidence, int blackScore, int whiteScore, int passScore, int... moves) {
+
+            this.choice = choice;
+            this.confidence = confidence;
+            this.blackScore = blackScore;
+            this.whiteScore = whiteScore;
+            this.passScore = passScore;
+            this.moves = moves;
+        }
+
+
+        /**
+         * @return {@link Swap2Enum#CHOICE_BLACK}, {@link Swap2Enum#CHOICE_WHITE} or {@link Swap2Enum#PLAYER_PASS}
+         */
+        public Swap2Enum getChoice() {
+
+            return choice;
+        }
+
+
+        /**
+         * @return from 0 for a guess to 1 for a sure decision
+         */
+        public double getConfidence() {
+
+            return confidence;
+        }
+
+
+        /**
+         * @param option {@link Swap2Enum#CHOICE_BLACK}, {@link Swap2Enum#CHOICE_WHITE} or {@link Swap2Enum#PLAYER_PASS}
+         *
+         * @return score of the option, -{@link Search#WIN} for a pass that was not searched
+         *
+         * @throws IllegalArgumentException for any other option
+         */
+        public int getScore(Swap2Enum option) {
+
+            switch(option) {
+                case CHOICE_BLACK:
+                    return blackScore;
+                case CHOICE_WHITE:
+                    return whiteScore;
+                case PLAYER_PASS:
+                    return passScore;
+                default:
+                    throw new IllegalArgumentException("no swap2 option: "+option);
+            }
+        }
+
+
+        /**
+         * @return cells to place: none for black, the white stone for white,
+         * the black and then the white stone for a pass
+         */
+        public int[] getMoves() {
+
+            return moves.clone();
+        }
+
+
+        @Override
+        public String toString() {
+
+            return String.format("%s confidence %.2f black %d white %d pass %d", choice, confidence, blackScore, whiteScore,
+                                 passScore);
+        }
+    }
+
+}
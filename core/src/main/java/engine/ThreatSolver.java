@@ -0,0 +1,265 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.Pattern;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+/**
+ * This is a threat-space solver for forced wins.
+ *
+ * A victory by continuous fours (VCF) only tries moves that make a four, the defender has to block the five
+ * and has exactly one answer, so even long sequences are proven in milliseconds. A victory by continuous threats (VCT)
+ * also tries moves that make an open three. The defender then answers on the cells that would make the three a four
+ * or with a four of his own. Other defences are not tried, so a VCT is a strong hint rather than a proof.
+ * If the defender can make five when it is his turn, the attack has failed.
+ *
+ * The solver plays on a {@link GameBoard} with a {@link ThreatIndex} and a {@link MoveGenerator},
+ * either its own ones or those of an engine, which calls {@link #solveVcf(byte, int, long)} as a fast tactical check.
+ */
+public class ThreatSolver
+{
+
+    public static final  int MAX_ATTACKS = 32;
+    private static final int CHECK_NODES = 1023;
+
+    private final GameBoard     board;
+    private final ThreatIndex   index;
+    private final MoveGenerator generator;
+    // candidate moves per ply
+    private final int[][]       moves;
+    // winning sequence, attacker and defender moves alternating
+    private final int[]         line;
+    private       int           length;
+    private       long          nodes;
+    private       long          deadline;
+    private       boolean       aborted;
+
+
+    /**
+     * Constructor for ThreatSolver on a board of its own.
+     *
+     * @param position {@link BoardSnapshot} to solve
+     */
+    public ThreatSolver(BoardSnapshot position) {
+
+        this(position.toBoard());
+    }
+
+
+    private ThreatSolver(GameBoard board) {
+
+        this(board, new ThreatIndex(board), new MoveGenerator(board, 2));
+    }
+
+
+    /**
+     * Constructor for ThreatSolver on the board of an engine. The board is changed during a solve
+     * and restored afterwards.
+     *
+     * @param board     {@link GameBoard}
+     * @param index     {@link ThreatIndex} of the board
+     * @param generator {@link MoveGenerator} of the board with a radius of 2
+     */
+    public ThreatSolver(GameBoard board, ThreatIndex index, MoveGenerator generator) {
+
+        this.board = board;
+        this.index = index;
+        this.generator = generator;
+        moves = new int[2*MAX_ATTACKS+2][board.getSize()*board.getSize()];
+        line = new int[2*MAX_ATTACKS+2];
+    }
+
+
+    /**
+     * Searches a victory by continuous fours.
+     *
+     * @param attacker {@link StoneColor} of the player to move
+     * @param attacks  maximal number of moves of the attacker, at most {@link #MAX_ATTACKS}
+     * @param millis   time budget in milliseconds
+     *
+     * @return winning sequence starting with the move of the attacker and ending with his five,
+     * null if there is none within the limits
+     */
+    public int[] solveVcf(byte attacker, int attacks, long millis) {
+
+        return solve(attacker, attacks, millis, false);
+    }
+
+
+    /**
+     * Searches a victory by continuous threats, fours and open threes.
+     *
+     * @param attacker {@link StoneColor} of the player to move
+     * @param attacks  maximal number of moves of the attacker, at most {@link #MAX_ATTACKS}
+     * @param millis   time budget in milliseconds
+     *
+     * @return winning sequence starting with the move of the attacker and ending with his five,
+     * null if there is none within the limits
+     */
+    public int[] solveVct(byte attacker, int attacks, long millis) {
+
+        return solve(attacker, attacks, millis, true);
+    }
+
+
+    /**
+     * @return positions searched by the last solve
+     */
+    public long getNodes() {
+
+        return nodes;
+    }
+
+
+    private int[] solve(byte attacker, int attacks, long millis, boolean threes) {
+
+        deadline = System.nanoTime()+millis*1000000L;
+        nodes = 0;
+        aborted = false;
+        length = 0;
+        if(!attack(attacker, Math.min(attacks, MAX_ATTACKS), 0, threes) || aborted) return null;
+        int[] sequence = new int[length];
+        System.arraycopy(line, 0, sequence, 0, length);
+        return sequence;
+    }
+
+
+    /**
+     * Turn of the attacker, true if one of his threats wins.
+     */
+    private boolean attack(byte attacker, int attacks, int ply, boolean threes) {
+
+        if((++nodes & CHECK_NODES) == 0 && System.nanoTime()-deadline>=0) aborted = true;
+        if(aborted) return false;
+
+        int five = findFive(attacker);
+        if(five>=0) {
+            line[ply] = five;
+            length = ply+1;
+            return true;
+        }
+        if(attacks == 0) return false;
+
+        byte   defender = StoneColor.opponent(attacker);
+        int[]  list     = moves[ply];
+        int    count;
+        if(index.getCount(defender, Pattern.FIVE)>0) {
+            // the attacker has to block, which only helps if the block is a threat itself
+            int block = findFive(defender);
+            if(!isThreat(block, attacker, threes)) return false;
+            list[0] = block;
+            count = 1;
+        } else {
+            count = threats(list, attacker, threes);
+        }
+
+        for(int i = 0; i<count; i++) {
+            int cell = list[i];
+            if(attacker == StoneColor.BLACK && index.isForbidden(cell)) continue;
+            board.addStone(cell, attacker);
+            line[ply] = cell;
+            boolean win = defend(attacker, attacks-1, ply+1, threes);
+            board.undo();
+            if(win) return true;
+            if(aborted) return false;
+        }
+        return false;
+    }
+
+
+    /**
+     * Turn of the defender after a threat, true if every answer loses.
+     * The answers are tried from last to first, so the sequence ends up with the first one.
+     */
+    private boolean defend(byte attacker, int attacks, int ply, boolean threes) {
+
+        byte defender = StoneColor.opponent(attacker);
+        if(index.getCount(defender, Pattern.FIVE)>0) return false;
+
+        int[] list  = moves[ply];
+        int   count = 0;
+        for(int i = 0; i<generator.getCount(); i++) {
+            int cell = generator.get(i);
+            if(index.getCount(attacker, Pattern.FIVE)>0 ? makes(cell, attacker, Pattern.FIVE)
+                                                         : makesFour(cell, attacker) || makesFour(cell, defender)) {
+                if(defender == StoneColor.BLACK && index.isForbidden(cell)) continue;
+                list[count++] = cell;
+            }
+        }
+        // a three that can not become a four is no threat
+        if(count == 0 && index.getCount(attacker, Pattern.FIVE) == 0) return false;
+
+        for(int i = count-1; i>=0; i--) {
+            board.addStone(list[i], defender);
+            line[ply] = list[i];
+            boolean win = attack(attacker, attacks, ply+1, threes);
+            board.undo();
+            if(!win) return false;
+        }
+        if(count == 0) {
+            // every block is forbidden for black
+            line[ply] = findFive(attacker);
+            length = ply+1;
+        }
+        return true;
+    }
+
+
+    /**
+     * Fills a list with the fours of the attacker and, for a VCT, his open threes after them.
+     */
+    private int threats(int[] list, byte attacker, boolean threes) {
+
+        int count = 0;
+        for(int i = 0; i<generator.getCount(); i++) {
+            int cell = generator.get(i);
+            if(makesFour(cell, attacker)) list[count++] = cell;
+        }
+        if(threes) {
+            for(int i = 0; i<generator.getCount(); i++) {
+                int cell = generator.get(i);
+                if(!makesFour(cell, attacker) && makes(cell, attacker, Pattern.OPEN_THREE)) list[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+
+    private boolean isThreat(int cell, byte attacker, boolean threes) {
+
+        return makesFour(cell, attacker) || threes && makes(cell, attacker, Pattern.OPEN_THREE);
+    }
+
+
+    private int findFive(byte player) {
+
+        if(index.getCount(player, Pattern.FIVE) == 0) return -1;
+        for(int i = 0; i<generator.getCount(); i++) {
+            if(makes(generator.get(i), player, Pattern.FIVE)) return generator.get(i);
+        }
+        return -1;
+    }
+
+
+    private boolean makesFour(int cell, byte player) {
+
+        for(int axis = 0; axis<4; axis++) {
+            byte pattern = index.getPattern(cell, axis, player);
+            if(pattern == Pattern.FOUR || pattern == Pattern.OPEN_FOUR || pattern == Pattern.DOUBLE_FOUR) return true;
+        }
+        return false;
+    }
+
+
+    private boolean makes(int cell, byte player, byte pattern) {
+
+        for(int axis = 0; axis<4; axis++) {
+            if(index.getPattern(cell, axis, player) == pattern) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,439 @@
+package engine;
+
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.MoveGenerator;
+import objects.RuleEnum;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a self-play tournament of two {@link Engine}s, A and B, that plays games on all cores at the same time.
+ *
+ * Every game starts from a random opening of a few stones around the center, each opening is played twice
+ * with the colors swapped, so neither engine profits from a lucky opening. Each engine has its own time per move.
+ * A move that is not valid, or forbidden for black under {@link RuleEnum#RENJU}, loses the game.
+ *
+ * After every game a sequential probability ratio test (SPRT) weighs the results: the hypothesis H0 is that A is
+ * elo0 stronger than B, H1 that it is elo1 stronger. The tournament stops when the log-likelihood ratio crosses
+ * one of the bounds given by the error rates alpha and beta, or after the maximal number of games.
+ * The test uses the normal approximation of the game results (GSPRT), draws count as half a point.
+ *
+ * Every game is written as one line: the engine with black, the result for black (1-0, 0-1 or 1/2)
+ * and all moves, the opening included, as two letters for x and y each, e.g. "A 1-0 hhihgg".
+ * Records are only written for boards up to {@link #MAX_RECORD_SIZE}, so that every coordinate is one letter.
+ */
+public class Tournament
+{
+
+    public static final  int H0              = -1;
+    public static final  int UNDECIDED       = 0;
+    public static final  int H1              = 1;
+    // one letter per coordinate in the game records
+    public static final  int MAX_RECORD_SIZE = 26;
+    // stones of the random opening and the square around the center they are placed in
+    private static final int OPENING         = 3;
+    private static final int OPENING_RANGE   = 2;
+
+    private final Engine   engineA;
+    private final Engine   engineB;
+    private final long     millisA;
+    private final long     millisB;
+    private final RuleEnum rule;
+    private final int      size;
+    private final int      threads;
+    private final long     seed;
+    private       double   elo0     = 0;
+    private       double   elo1     = 5;
+    private       double   alpha    = 0.05;
+    private       double   beta     = 0.05;
+    // results for A
+    private       int      wins;
+    private       int      draws;
+    private       int      losses;
+    private       int      decision;
+    private       Writer   records;
+
+
+    /**
+     * Constructor for Tournament.
+     *
+     * @param engineA {@link Engine} A, usually the changed one
+     * @param millisA time per move of A in milliseconds
+     * @param engineB {@link Engine} B, usually the baseline
+     * @param millisB time per move of B in milliseconds
+     * @param rule    {@link RuleEnum} of the games
+     * @param size    board size
+     * @param threads number of games at the same time, e.g. {@link Runtime#availableProcessors()}
+     * @param seed    seed of the random openings
+     *
+     * @throws IllegalArgumentException if there are no threads
+     */
+    public Tournament(Engine engineA, long millisA, Engine engineB, long millisB, RuleEnum rule, int size, int threads, long seed) {
+
+        if(threads<1) throw new IllegalArgumentException("at least one game thread needed: "+threads);
+        this.engineA = engineA;
+        this.engineB = engineB;
+        this.millisA = millisA;
+        this.millisB = millisB;
+        this.rule = rule;
+        this.size = size;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+
+    /**
+     * Sets the hypotheses and error rates of the SPRT, by default 0 and 5 elo with 5 % errors each.
+     *
+     * @param elo0  elo difference of H0
+     * @param elo1  elo difference of H1, greater than elo0
+     * @param alpha probability to accept H1 when H0 is true
+     * @param beta  probability to accept H0 when H1 is true
+     *
+     * @throws IllegalArgumentException if the hypotheses or error rates make no sense
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+
+        if(elo1<=elo0 || alpha<=0 || alpha>=1 || beta<=0 || beta>=1) {
+            throw new IllegalArgumentException("invalid SPRT: elo0 "+elo0+", elo1 "+elo1+", alpha "+alpha+", beta "+beta);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+
+    /**
+     * Plays games until the SPRT decides or the maximal number of games is reached.
+     *
+     * @param maxGames maximal number of games, rounded up to an even number
+     * @param records  {@link Writer} for the game records or null
+     *
+     * @return {@link #H0}, {@link #H1} or {@link #UNDECIDED}
+     *
+     * @throws IOException              if a record can not be written
+     * @throws IllegalArgumentException if there are records and the board is larger than {@link #MAX_RECORD_SIZE}
+     */
+    public int run(final int maxGames, Writer records) throws IOException {
+
+        if(records != null && size>MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("game records need a board of at most "+MAX_RECORD_SIZE+": "+size);
+        }
+        this.records = records;
+        final AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+
+            private int count;
+
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "tournament "+count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        List<Future<Void>> workers = new ArrayList<Future<Void>>(threads);
+        for(int i = 0; i<threads; i++) {
+            workers.add(pool.submit(new Callable<Void>()
+            {
+
+                @Override
+                public Void call() throws IOException {
+
+                    // a pair of games per opening, A has black in the first one
+                    for(int pair = next.getAndIncrement(); 2*pair<maxGames && getDecision() == UNDECIDED;
+                        pair = next.getAndIncrement()) {
+                        int[] opening = opening(pair);
+                        play(opening, true);
+                        play(opening, false);
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for(Future<Void> worker : workers) worker.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IllegalStateException("tournament failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if(records != null) records.flush();
+        return getDecision();
+    }
+
+
+    /**
+     * Random opening of a pair of games, the same for every run with the same seed.
+     */
+    private int[] opening(int pair) {
+
+        Random    random = new Random(seed*31+pair);
+        GameBoard board  = new GameBoard(size, rule);
+        int[]     cells  = new int[OPENING];
+        int       center = size/2;
+        for(int i = 0; i<OPENING; i++) {
+            int cell;
+            do {
+                cell = board.cell(center-OPENING_RANGE+random.nextInt(2*OPENING_RANGE+1),
+                                  center-OPENING_RANGE+random.nextInt(2*OPENING_RANGE+1));
+            } while(!board.checkValid(cell));
+            board.addStone(cell, i%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE);
+            cells[i] = cell;
+        }
+        return cells;
+    }
+
+
+    /**
+     * Plays one game and counts its result.
+     */
+    private void play(int[] opening, boolean blackA) throws IOException {
+
+        GameBoard   board  = new GameBoard(size, rule);
+        ThreatIndex index  = rule == RuleEnum.RENJU ? new ThreatIndex(board) : null;
+        byte        winner = StoneColor.EMPTY;
+        for(int i = 0; i<opening.length; i++) board.addStone(opening[i], i%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE);
+
+        byte color = opening.length%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE;
+        while(winner == StoneColor.EMPTY && board.getCounter()>0) {
+            boolean turnA = color == StoneColor.BLACK == blackA;
+            int     move  = turnA ? engineA.move(board.snapshot(), color, millisA).getMove()
+                                  : engineB.move(board.snapshot(), color, millisB).getMove();
+            if(move<0 || !board.checkValid(move) || index != null && color == StoneColor.BLACK && index.isForbidden(move)) {
+                winner = StoneColor.opponent(color);
+                break;
+            }
+            board.addStone(move, color);
+            if(board.checkWin(move)) winner = color;
+            color = StoneColor.opponent(color);
+        }
+        count(board, blackA, winner);
+    }
+
+
+    private synchronized void count(GameBoard board, boolean blackA, byte winner) throws IOException {
+
+        if(winner == StoneColor.EMPTY) draws++;
+        else if(winner == StoneColor.BLACK == blackA) wins++;
+        else losses++;
+
+        double llr = getLlr();
+        if(decision == UNDECIDED && llr>=Math.log((1-beta)/alpha)) decision = H1;
+        if(decision == UNDECIDED && llr<=Math.log(beta/(1-alpha))) decision = H0;
+
+        if(records != null) {
+            StringBuilder line = new StringBuilder(blackA ? "A " : "B ");
+            line.append(winner == StoneColor.BLACK ? "1-0 " : winner == StoneColor.WHITE ? "0-1 " : "1/2 ");
+            for(int i = 0; i<board.getMoveCount(); i++) {
+                line.append((char) ('a'+board.cellX(board.getMove(i)))).append((char) ('a'+board.cellY(board.getMove(i))));
+            }
+            records.write(line.append('\n').toString());
+        }
+    }
+
+
+    public synchronized int getWins() {
+
+        return wins;
+    }
+
+
+    public synchronized int getDraws() {
+
+        return draws;
+    }
+
+
+    public synchronized int getLosses() {
+
+        return losses;
+    }
+
+
+    public synchronized int getDecision() {
+
+        return decision;
+    }
+
+
+    /**
+     * @return log-likelihood ratio of H1 against H0 after the games so far
+     */
+    public synchronized double getLlr() {
+
+        return llr(wins, draws, losses, elo0, elo1);
+    }
+
+
+    /**
+     * Elo difference of A over B estimated from the score.
+     *
+     * @return elo, infinite if one engine won every game
+     */
+    public synchronized double getElo() {
+
+        int games = wins+draws+losses;
+        if(games == 0) return 0;
+        double score = (wins+draws/2.0)/games;
+        return -400*Math.log10(1/score-1);
+    }
+
+
+    /**
+     * Log-likelihood ratio of the GSPRT with the normal approximation.
+     *
+     * @param wins   wins of A
+     * @param draws  draws
+     * @param losses losses of A
+     * @param elo0   elo difference of H0
+     * @param elo1   elo difference of H1
+     *
+     * @return log-likelihood ratio, 0 without games
+     */
+    public static double llr(int wins, int draws, int losses, double elo0, double elo1) {
+
+        if(wins+draws+losses == 0) return 0;
+        // with only one kind of result there is no variance, half a win and half a loss more keep the test going
+        double extra    = wins+losses == 0 || wins+draws == 0 || draws+losses == 0 ? 0.5 : 0;
+        double won      = wins+extra;
+        double lost     = losses+extra;
+        double games    = won+draws+lost;
+        double score    = (won+draws/2.0)/games;
+        double variance = (won*(1-score)*(1-score)+draws*(0.5-score)*(0.5-score)+lost*score*score)/games;
+        if(variance == 0) return 0;
+        double score0 = 1/(1+Math.pow(10, -elo0/400));
+        double score1 = 1/(1+Math.pow(10, -elo1/400));
+        return (score1-score0)*(2*score-score0-score1)/(2*variance/games);
+    }
+
+
+    /**
+     * @return wins, draws, losses, elo and the SPRT state
+     */
+    @Override
+    public synchronized String toString() {
+
+        String state = decision == H1 ? "H1 accepted" : decision == H0 ? "H0 accepted" : "undecided";
+        return String.format("games %d: +%d =%d -%d, elo %.1f, LLR %.2f [%.2f, %.2f] %s", wins+draws+losses, wins, draws,
+                             losses, getElo(), getLlr(), Math.log(beta/(1-alpha)), Math.log((1-beta)/alpha), state);
+    }
+
+
+    /**
+     * {@link Engine} by name: "search" for {@link Search}, "mcts" for {@link MonteCarloSearch} with one thread
+     * or "random" for random moves next to the stones.
+     *
+     * @param name name of the engine
+     *
+     * @return {@link Engine}
+     *
+     * @throws IllegalArgumentException if there is no engine of the name
+     */
+    public static Engine engine(String name) {
+
+        switch(name) {
+            case "search":
+                return new Engine()
+                {
+
+                    @Override
+                    public SearchResult move(BoardSnapshot position, byte color, long millis) {
+
+                        return new Search(position).search(color, millis);
+                    }
+                };
+            case "mcts":
+                return new Engine()
+                {
+
+                    @Override
+                    public SearchResult move(BoardSnapshot position, byte color, long millis) {
+
+                        MonteCarloSearch search = new MonteCarloSearch(position, color, 1, 1 << 18);
+                        try {
+                            return search.search(millis);
+                        } finally {
+                            search.shutdown();
+                        }
+                    }
+                };
+            case "random":
+                return new Engine()
+                {
+
+                    @Override
+                    public SearchResult move(BoardSnapshot position, byte color, long millis) {
+
+                        GameBoard     board     = position.toBoard();
+                        MoveGenerator generator = new MoveGenerator(board, 1);
+                        int           move      = board.getMoveCount() == 0 ? board.cell(board.getSize()/2, board.getSize()/2)
+                                                  : generator.getCount() == 0 ? -1
+                                                  : generator.get(ThreadLocalRandom.current().nextInt(generator.getCount()));
+                        return new SearchResult(move, 0, 0, 1, 0);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("unknown engine: "+name);
+        }
+    }
+
+
+    /**
+     * Runs a tournament and prints the result.
+     *
+     * @param args engine A, engine B (see {@link #engine(String)}), optional maximal games (default 1000),
+     *             milliseconds per move of A and B (default 100 each), number of threads (default all cores)
+     *             and file for the game records
+     *
+     * @throws IOException if the records can not be written
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length<2) {
+            System.out.println("usage: Tournament <engine A> <engine B> [games] [millis A] [millis B] [threads] [records]");
+            return;
+        }
+        int    games   = args.length>2 ? Integer.parseInt(args[2]) : 1000;
+        long   millisA = args.length>3 ? Long.parseLong(args[3]) : 100;
+        long   millisB = args.length>4 ? Long.parseLong(args[4]) : millisA;
+        int    threads = args.length>5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        Writer records = args.length>6 ? new BufferedWriter(new FileWriter(args[6])) : null;
+
+        Tournament tournament = new Tournament(engine(args[0]), millisA, engine(args[1]), millisB, RuleEnum.EXACT_FIVE,
+                                               15, threads, System.nanoTime());
+        long start = System.nanoTime();
+        try {
+            tournament.run(games, records);
+        } finally {
+            if(records != null) records.close();
+        }
+        System.out.println(tournament+String.format(", %.1f s", (System.nanoTime()-start)/1e9));
+    }
+
+}
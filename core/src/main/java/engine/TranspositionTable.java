@@ -0,0 +1,260 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a transposition table for {@link Search} that many search threads share without locks.
+ *
+ * The table is one preallocated long array with two longs per entry: the position key xor the data and the data.
+ * Readers only accept an entry if both longs xor back to the key, so an entry that is torn by two threads writing
+ * at the same time is a miss instead of a wrong result (lockless hashing). A new entry replaces an entry of another
+ * position, and an entry of the same position if it is searched at least as deep.
+ *
+ * The data packs score, move, depth and bound into one long, see {@link #score(long)}, {@link #move(long)},
+ * {@link #depth(long)} and {@link #bound(long)}. Data 0 is an empty entry.
+ *
+ * Probes, hits, collisions and stores are counted by each search thread in its own {@link Counters} with plain
+ * fields, which are added to the totals of the table once after the search with {@link #add(Counters)}.
+ * Counting costs no shared write on the hot path, the totals are only up to date after the searches.
+ */
+public class TranspositionTable
+{
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private final long[]     table;
+    private final int        mask;
+    // totals of the counters of finished searches
+    private final AtomicLong probes     = new AtomicLong();
+    private final AtomicLong hits       = new AtomicLong();
+    private final AtomicLong collisions = new AtomicLong();
+    private final AtomicLong stores     = new AtomicLong();
+
+
+    /**
+     * Constructor for TranspositionTable.
+     *
+     * @param megabytes size of the table, rounded down to a power of two entries of 16 bytes
+     *
+     * @throws IllegalArgumentException if the size is less than 1 MB or more than 8 GB
+     */
+    public TranspositionTable(int megabytes) {
+
+        if(megabytes<1 || megabytes>8192) throw new IllegalArgumentException("table size must be 1 to 8192 MB: "+megabytes);
+        int entries = Integer.highestOneBit(megabytes << 16);
+        table = new long[2*entries];
+        mask = entries-1;
+    }
+
+
+    /**
+     * Looks up a position without counting.
+     *
+     * @param key 64 bit hash of the position
+     *
+     * @return the data of the entry, 0 if the position is not in the table
+     */
+    public long probe(long key) {
+
+        return probe(key, null);
+    }
+
+
+    /**
+     * Looks up a position.
+     *
+     * @param key      64 bit hash of the position
+     * @param counters {@link Counters} of the calling thread, or null
+     *
+     * @return the data of the entry, 0 if the position is not in the table
+     */
+    public long probe(long key, Counters counters) {
+
+        int     slot = 2*((int) key & mask);
+        long    data = table[slot+1];
+        long    lock = table[slot];
+        boolean hit  = data != 0 && (lock ^ data) == key;
+        if(counters != null) {
+            counters.probes++;
+            if(hit) counters.hits++;
+            else if(data != 0) counters.collisions++;
+        }
+        return hit ? data : 0;
+    }
+
+
+    /**
+     * Stores a search result.
+     *
+     * @param key   64 bit hash of the position
+     * @param move  best move, cell index up to 2^20-1 or -1
+     * @param score score of the position
+     * @param depth searched depth, 0 to 255
+     * @param bound {@link #UPPER}, {@link #LOWER} or {@link #EXACT}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+
+        store(key, move, score, depth, bound, null);
+    }
+
+
+    /**
+     * Stores a search result, see {@link #store(long, int, int, int, int)}.
+     *
+     * @param counters {@link Counters} of the calling thread, or null
+     */
+    public void store(long key, int move, int score, int depth, int bound, Counters counters) {
+
+        int  slot = 2*((int) key & mask);
+        long old  = table[slot+1];
+        if(old != 0 && (table[slot] ^ old) == key && depth(old)>depth) return;
+
+        long data = (long) bound << 60 | (long) depth << 52 | (long) (move & 0xFFFFF) << 32 | score & 0xFFFFFFFFL;
+        table[slot] = key ^ data;
+        table[slot+1] = data;
+        if(counters != null) counters.stores++;
+    }
+
+
+    public static int score(long data) {
+
+        return (int) data;
+    }
+
+
+    /**
+     * @param data entry from {@link #probe(long)}
+     *
+     * @return cell index of the best move, -1 if there was none
+     */
+    public static int move(long data) {
+
+        int move = (int) (data >>> 32) & 0xFFFFF;
+        return move == 0xFFFFF ? -1 : move;
+    }
+
+
+    public static int depth(long data) {
+
+        return (int) (data >>> 52) & 0xFF;
+    }
+
+
+    public static int bound(long data) {
+
+        return (int) (data >>> 60) & 3;
+    }
+
+
+    /**
+     * Empties the table and resets the counters. Must not be called while a search uses the table.
+     */
+    public void clear() {
+
+        Arrays.fill(table, 0);
+        probes.set(0);
+        hits.set(0);
+        collisions.set(0);
+        stores.set(0);
+    }
+
+
+    /**
+     * Adds the counters of a search to the totals and resets them. Called once after a search, from any thread.
+     *
+     * @param counters {@link Counters} of the search
+     */
+    public void add(Counters counters) {
+
+        probes.addAndGet(counters.probes);
+        hits.addAndGet(counters.hits);
+        collisions.addAndGet(counters.collisions);
+        stores.addAndGet(counters.stores);
+        counters.probes = 0;
+        counters.hits = 0;
+        counters.collisions = 0;
+        counters.stores = 0;
+    }
+
+
+    public int getEntries() {
+
+        return mask+1;
+    }
+
+
+    public long getProbes() {
+
+        return probes.get();
+    }
+
+
+    public long getHits() {
+
+        return hits.get();
+    }
+
+
+    public long getStores() {
+
+        return stores.get();
+    }
+
+
+    /**
+     * @return number of probes that found an entry of another position
+     */
+    public long getCollisions() {
+
+        return collisions.get();
+    }
+
+
+    @Override
+    public String toString() {
+
+        return getEntries()+" entries, "+getProbes()+" probes, "+getHits()+" hits, "+getCollisions()+" collisions, "
+               +getStores()+" stores";
+    }
+
+
+    /**
+     * Probe and store counts of one search thread. Not thread safe, every thread has its own.
+     */
+    public static final class Counters
+    {
+
+        private long probes;
+        private long hits;
+        private long collisions;
+        private long stores;
+
+
+        public long getProbes() {
+
+            return probes;
+        }
+
+
+        public long getHits() {
+
+            return hits;
+        }
+
+
+        public long getCollisions() {
+
+            return collisions;
+        }
+
+
+        public long getStores() {
+
+            return stores;
+        }
+    }
+
+}
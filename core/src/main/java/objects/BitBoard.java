@@ -0,0 +1,268 @@
+package objects;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.awt.*;
+
+/**
+ * This is a bitboard implementation of the Gomoku board.
+ *
+ * Every color is packed into a primitive long array that stores each line of the board
+ * (rows, columns, diagonals and anti-diagonals) as a contiguous bit string.
+ * Five in a row is detected with shift-and-mask operations instead of walking {@link Stone} objects.
+ * Like {@link GameBoard} only exactly five stones win, six or more in a row do not.
+ *
+ * Offers the same {@link #addStone(int, byte)}, {@link #getColor(int)} and {@link #checkWin(int, byte)}
+ * surface as {@link GameBoard} with its {@link Stone} adapters,
+ * plus {@link #hasFive(byte)} to scan the whole board at once.
+ */
+public class BitBoard
+{
+
+    // free bits in front of every line, so the window around the first cell never starts below bit 0
+    private static final int  PAD         = 5;
+    // 5 cells on both sides of the placed stone, the outer ones tell five from six in a row
+    private static final int  WINDOW_MASK = 0x7FF;
+    // starts of a five in the window that contain the placed stone
+    private static final long WINDOW_FIVE = 0x3EL;
+    // starts of a five in a 64 bit read whose neighbour bits were read as well
+    private static final long READ_FIVE   = (1L << 59)-2;
+    private static final int  HORIZONTAL  = 0;
+    private static final int  VERTICAL    = 1;
+    private static final int  DIAGONAL    = 2;
+    private static final int  ANTI_DIAG   = 3;
+
+    private final int      size;
+    private final int      lines;
+    private final int      words;
+    private final long[][] bits;
+
+
+    /**
+     * Constructor for BitBoard with {@link GameBoard#DEFAULT_SIZE}.
+     */
+    public BitBoard() {
+
+        this(GameBoard.DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Constructor for BitBoard.
+     * Initializes one bit array per color with room for all four line orientations.
+     *
+     * @param size number of rows and columns
+     */
+    public BitBoard(int size) {
+
+        this.size = size;
+        // diagonals need 2*size-1 lines, rows and columns just use the first size of them
+        lines = 2*size-1;
+        words = (size+2*PAD+63) >>> 6;
+        bits = new long[2][4*lines*words];
+    }
+
+
+    /**
+     * Adds stone to the bitboard of its color, once for every line orientation.
+     *
+     * @param cell  cell index x*size+y, like {@link GameBoard#cell(int, int)}
+     * @param color {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     *
+     * @throws IndexOutOfBoundsException if the cell is outside of the board
+     */
+    public void addStone(int cell, byte color) {
+
+        int    x = cell/size;
+        int    y = cell%size;
+        long[] b = bits[color-1];
+        checkBounds(x, y);
+        set(b, HORIZONTAL, y, x);
+        set(b, VERTICAL, x, y);
+        set(b, DIAGONAL, x-y+size-1, x);
+        set(b, ANTI_DIAG, x+y, x);
+    }
+
+
+    /**
+     * Adds a {@link Stone} of the UI, see {@link #addStone(int, byte)}.
+     *
+     * @param stone {@link Stone} that is added
+     *
+     * @throws IndexOutOfBoundsException if the stone is outside of the board
+     */
+    public void addStone(Stone stone) {
+
+        checkBounds(stone.getPosition().x, stone.getPosition().y);
+        addStone(stone.getPosition().x*size+stone.getPosition().y, Stone.encode(stone.getColor()));
+    }
+
+
+    /**
+     * Color of the stone in a cell.
+     *
+     * @param cell cell index
+     *
+     * @return {@link StoneColor}
+     */
+    public byte getColor(int cell) {
+
+        int x = cell/size;
+        int y = cell%size;
+        if(isSet(bits[0], HORIZONTAL, y, x)) return StoneColor.BLACK;
+        if(isSet(bits[1], HORIZONTAL, y, x)) return StoneColor.WHITE;
+        return StoneColor.EMPTY;
+    }
+
+
+    /**
+     * Creates the {@link Stone} at the given position from the bitboards.
+     *
+     * @param x x Position
+     * @param y y Position
+     *
+     * @return {@link Stone} at the position or null if there is none
+     */
+    public Stone getStone(int x, int y) {
+
+        checkBounds(x, y);
+        byte color = getColor(x*size+y);
+        return color == StoneColor.EMPTY ? null : new Stone(Stone.decode(color), new Point(x, y));
+    }
+
+
+    /**
+     * Used to check if the winning condition (5 stones in a row) is fullfilled.
+     * Only the four lines through the given cell are tested,
+     * each with an 11 bit window around the cell.
+     *
+     * @param cell  cell index of the current stone
+     * @param color {@link StoneColor} of the current stone
+     *
+     * @return true if there are exactly five stones of the color in a row through the cell
+     */
+    public boolean checkWin(int cell, byte color) {
+
+        int    xPos = cell/size;
+        int    yPos = cell%size;
+        long[] b    = bits[color-1];
+        return five(window(b, HORIZONTAL, yPos, xPos), WINDOW_FIVE) ||
+               five(window(b, VERTICAL, xPos, yPos), WINDOW_FIVE) ||
+               five(window(b, DIAGONAL, xPos-yPos+size-1, xPos), WINDOW_FIVE) ||
+               five(window(b, ANTI_DIAG, xPos+yPos, xPos), WINDOW_FIVE);
+    }
+
+
+    /**
+     * Checks the winning condition for a {@link Stone} of the UI, see {@link #checkWin(int, byte)}.
+     *
+     * @param xPos  current {@link Stone} x Position
+     * @param yPos  current {@link Stone} y Position
+     * @param color current {@link Stone} color
+     *
+     * @return true if there are exactly five stones of the color in a row through the position
+     */
+    public boolean checkWin(int xPos, int yPos, Color color) {
+
+        return checkWin(xPos*size+yPos, Stone.encode(color));
+    }
+
+
+    /**
+     * Scans every line of the board for five in a row.
+     * Used for replay validation where the last move is not known.
+     *
+     * @param color {@link StoneColor}
+     *
+     * @return true if there are exactly five stones of the color in a row anywhere
+     */
+    public boolean hasFive(byte color) {
+
+        long[] b = bits[color-1];
+        for(int orientation = HORIZONTAL; orientation<=ANTI_DIAG; orientation++) {
+            for(int line = 0; line<lines; line++) {
+                // 58 because a five starting in the last bits of a 64 bit read is found by the next read
+                for(int from = 0; from<size+PAD; from += 58) {
+                    if(five(bitsAt(b, base(orientation, line), from), READ_FIVE)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    public boolean hasFive(Color color) {
+
+        return hasFive(Stone.encode(color));
+    }
+
+
+    public int getSize() {
+
+        return size;
+    }
+
+
+    /**
+     * Finds exactly five set bits in a row.
+     * A row of six or more sets two neighbouring start bits, a row of five a single one.
+     *
+     * @param w      bits of a line
+     * @param starts start bits that are taken into account
+     */
+    private static boolean five(long w, long starts) {
+
+        long f = w & w >>> 1 & w >>> 2 & w >>> 3 & w >>> 4;
+        return (f & ~(f << 1) & ~(f >>> 1) & starts) != 0;
+    }
+
+
+    private void checkBounds(int x, int y) {
+
+        if(x<0 || y<0 || x>=size || y>=size)
+            throw new IndexOutOfBoundsException("("+x+", "+y+") is outside of a "+size+"x"+size+" board");
+    }
+
+
+    private int base(int orientation, int line) {
+
+        return (orientation*lines+line)*words;
+    }
+
+
+    private void set(long[] b, int orientation, int line, int pos) {
+
+        int bit = pos+PAD;
+        b[base(orientation, line)+(bit >>> 6)] |= 1L << (bit & 63);
+    }
+
+
+    private boolean isSet(long[] b, int orientation, int line, int pos) {
+
+        int bit = pos+PAD;
+        return (b[base(orientation, line)+(bit >>> 6)] & 1L << (bit & 63)) != 0;
+    }
+
+
+    /**
+     * Reads the 11 bits of a line that belong to the cells from pos-5 to pos+5.
+     */
+    private long window(long[] b, int orientation, int line, int pos) {
+
+        return bitsAt(b, base(orientation, line), pos) & WINDOW_MASK;
+    }
+
+
+    /**
+     * Reads 64 bits of a line starting at the given bit, across the word boundary if needed.
+     */
+    private long bitsAt(long[] b, int base, int from) {
+
+        int  word  = from >>> 6;
+        int  shift = from & 63;
+        long value = b[base+word] >>> shift;
+        if(shift != 0 && word+1<words) value |= b[base+word+1] << (64-shift);
+        return value;
+    }
+
+}
@@ -0,0 +1,16 @@
+package objects;
+
+/**
+ * Listener for changes of a {@link GameBoard}, registered with {@link GameBoard#addListener(BoardListener)}.
+ * Used by indices that are kept next to the board and updated incrementally.
+ * Both methods are called after the board has changed, for new stones as well as for {@link GameBoard#undo()}
+ * and {@link GameBoard#redo()}.
+ */
+public interface BoardListener
+{
+
+    void stoneAdded(int cell, byte color);
+
+    void stoneRemoved(int cell, byte color);
+
+}
@@ -0,0 +1,123 @@
+package objects;
+
+/**
+ * This is an immutable snapshot of a {@link GameBoard}, created with {@link GameBoard#snapshot()}.
+ *
+ * The snapshot shares the cell and move arrays of the board it was taken from.
+ * The board copies them before its next change (copy-on-write), so taking a snapshot is O(1)
+ * and a snapshot never changes afterwards. It can be handed to other threads without locks,
+ * e.g. from the render thread to analysis workers, which call {@link #toBoard()} for a board of their own.
+ */
+public final class BoardSnapshot
+{
+
+    private final int      size;
+    private final RuleEnum rule;
+    private final byte[]   cells;
+    private final int[]    moves;
+    private final int      moveCount;
+    private final long     hash;
+
+
+    /**
+     * Constructor for BoardSnapshot. The arrays must not be changed afterwards.
+     *
+     * @param size      number of rows and columns
+     * @param rule      {@link RuleEnum} of the board
+     * @param cells     cell contents of the board
+     * @param moves     move stack of the board, cell << 2 | color
+     * @param moveCount number of valid moves
+     * @param hash      Zobrist hash of the board
+     */
+    BoardSnapshot(int size, RuleEnum rule, byte[] cells, int[] moves, int moveCount, long hash) {
+
+        this.size = size;
+        this.rule = rule;
+        this.cells = cells;
+        this.moves = moves;
+        this.moveCount = moveCount;
+        this.hash = hash;
+    }
+
+
+    public int getSize() {
+
+        return size;
+    }
+
+
+    public RuleEnum getRule() {
+
+        return rule;
+    }
+
+
+    /**
+     * Cell index of a position, like {@link GameBoard#cell(int, int)}.
+     *
+     * @param x x Position
+     * @param y y Position
+     *
+     * @return x*size+y
+     */
+    public int cell(int x, int y) {
+
+        return x*size+y;
+    }
+
+
+    /**
+     * Color of the stone in a cell.
+     *
+     * @param cell cell index
+     *
+     * @return {@link StoneColor}
+     */
+    public byte getColor(int cell) {
+
+        return cells[cell];
+    }
+
+
+    public int getMoveCount() {
+
+        return moveCount;
+    }
+
+
+    /**
+     * Cell of a move.
+     *
+     * @param index 0 for the first move up to {@link #getMoveCount()}-1 for the last one
+     *
+     * @return cell index
+     */
+    public int getMove(int index) {
+
+        if(index>=moveCount) throw new IndexOutOfBoundsException("move "+index+" of "+moveCount);
+        return moves[index] >>> 2;
+    }
+
+
+    public long getHash() {
+
+        return hash;
+    }
+
+
+    /**
+     * Creates a new {@link GameBoard} by playing all moves of the snapshot.
+     * The board has the full incremental state and can be changed without affecting the snapshot.
+     *
+     * @return new {@link GameBoard} with the position of the snapshot
+     */
+    public GameBoard toBoard() {
+
+        GameBoard board = new GameBoard(size, rule);
+        for(int i = 0; i<moveCount; i++) {
+            board.addStone(moves[i] >>> 2, (byte) (moves[i] & 3));
+        }
+        return board;
+    }
+
+}
@@ -1,42 +1,157 @@
 package objects;
 
 import com.badlogic.gdx.graphics.Color;
-import screens.GameScreen;
+
+import java.awt.*;
+import java.util.Arrays;
 
 /**
  * This is the GameBoard class that is used for Gomoku.
  *
- * Contains {@link #addStone(Stone)} to add a {@link Stone} to the board,
- * {@link #checkValid(GameScreen)} to check a valid stone placement,
- * {@link #checkWin(int, int, Color)} and {@link #checkWin(int, int, DirectionEnum, Color)}
- * to determine the winning condition.
+ * Contains {@link #addStone(int, byte)} to add a stone to the board,
+ * {@link #checkValid(int)} to check a valid stone placement and
+ * {@link #checkWin(int)} to determine the winning condition.
+ * Positions are cell indices from {@link #cell(int, int)}, colors are {@link StoneColor} bytes.
+ * {@link #addStone(Stone)}, {@link #getStone(int, int)} and {@link #checkWin(int, int, Color)}
+ * are the {@link Stone} based adapters for the UI.
+ *
+ * For every cell and each of the four axes the board keeps the length of the row of same colored stones
+ * running through it. The run lengths are updated with every stone,
+ * so checking the winning condition is a constant time lookup and keeps no state between calls.
+ *
+ * {@link #getHash()} returns a 64 bit {@link Zobrist} hash of the position that is updated with every stone.
+ *
+ * The board size is set at construction and independent of the UI.
+ * Stones are stored as one byte per cell, so boards of 100x100 and more stay small.
+ *
+ * Every stone is pushed on a preallocated move stack. {@link #undo()} takes the last stone back
+ * and {@link #redo()} puts it again, restoring cells, counter, run lengths and hash exactly
+ * without allocating anything. Used for lookahead and for seeking in replays.
+ *
+ * {@link #snapshot()} returns an immutable {@link BoardSnapshot} for other threads.
+ * It shares the cell and move arrays until the next change copies them.
+ *
+ * The winning rule is a {@link RuleEnum}, by default {@link RuleEnum#EXACT_FIVE}.
+ *
+ * Indices next to the board, like {@link ThreatIndex}, register a {@link BoardListener}
+ * with {@link #addListener(BoardListener)} and are told about every added and removed stone.
  *
  * @author Emilija Kastratovic
  */
 public class GameBoard
 {
 
-    public static int       counter = GameScreen.grid_size_*GameScreen.grid_size_;
-    private final Stone[][] gameBoard;
-    private       int       horizontal;
-    private       int       vertical;
-    private       int       crossUp;
-    private       int       crossDwn;
+    public static final  int             DEFAULT_SIZE = 15;
+    // axes in the order horizontal, vertical, crossUp, crossDwn
+    public static final  int             HORIZONTAL   = 0;
+    public static final  int             VERTICAL     = 1;
+    public static final  int             CROSS_UP     = 2;
+    public static final  int             CROSS_DOWN   = 3;
+    static final         int[]           AXIS_X       = {1, 0, 1, 1};
+    static final         int[]           AXIS_Y       = {0, 1, 1, -1};
+    private final        int             size;
+    private final        RuleEnum        rule;
+    // cell contents, indexed by x*size+y
+    private              byte[]          gameBoard;
+    // run length per axis, indexed by cell
+    private final        byte[][]        runs;
+    // moves as cell << 2 | color, valid up to redoTop
+    private              int[]           moves;
+    private              int             moveCount;
+    private              int             redoTop;
+    private              int             counter;
+    private              long            hash;
+    // last snapshot, shares gameBoard and moves until the next change
+    private              BoardSnapshot   snapshot;
+    private              BoardListener[] listeners    = new BoardListener[0];
 
 
     /**
-     * Constructor for GameBoard. Initialized a twodimensional {@link Stone} array.
+     * Constructor for GameBoard with {@link #DEFAULT_SIZE}.
      *
      * @author Emilija Kastratovic
      */
     public GameBoard() {
 
-        gameBoard = new Stone[GameScreen.grid_size_][GameScreen.grid_size_];
+        this(DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Constructor for GameBoard. Initializes the cells and the run length tables for the four axes.
+     *
+     * @param size number of rows and columns
+     *
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public GameBoard(int size) {
+
+        this(size, RuleEnum.EXACT_FIVE);
     }
 
 
     /**
-     * Adds stone to Gameboard {@link Stone} array
+     * Constructor for GameBoard with a winning rule.
+     *
+     * @param size number of rows and columns
+     * @param rule {@link RuleEnum}
+     *
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public GameBoard(int size, RuleEnum rule) {
+
+        if(size<1) throw new IllegalArgumentException("board size must be positive: "+size);
+        this.size = size;
+        this.rule = rule;
+        gameBoard = new byte[size*size];
+        runs = new byte[4][size*size];
+        moves = new int[size*size];
+        counter = size*size;
+    }
+
+
+    /**
+     * Cell index of a position.
+     *
+     * @param x x Position
+     * @param y y Position
+     *
+     * @return x*size+y
+     */
+    public int cell(int x, int y) {
+
+        return x*size+y;
+    }
+
+
+    public int cellX(int cell) {
+
+        return cell/size;
+    }
+
+
+    public int cellY(int cell) {
+
+        return cell%size;
+    }
+
+
+    /**
+     * Adds stone to Gameboard and pushes it on the move stack.
+     * Moves that were taken back with {@link #undo()} can no longer be redone.
+     *
+     * @param cell  cell index from {@link #cell(int, int)}
+     * @param color {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     */
+    public void addStone(int cell, byte color) {
+
+        place(cell, color);
+        redoTop = moveCount;
+    }
+
+
+    /**
+     * Adds a {@link Stone} of the UI, see {@link #addStone(int, byte)}.
      *
      * @param stone {@link Stone} that is added
      *
@@ -44,30 +159,107 @@ public class GameBoard
      */
     public void addStone(Stone stone) {
 
-        gameBoard[stone.getPosition().x][stone.getPosition().y] = stone;
+        addStone(cell(stone.getPosition().x, stone.getPosition().y), Stone.encode(stone.getColor()));
+    }
+
+
+    /**
+     * Takes the last stone back.
+     *
+     * @return false if there was no stone to take back
+     */
+    public boolean undo() {
+
+        if(moveCount == 0) return false;
+        remove(moves[--moveCount] >>> 2);
+        return true;
+    }
+
+
+    /**
+     * Puts the last stone that was taken back with {@link #undo()} on the board again.
+     *
+     * @return false if there was no stone to put back
+     */
+    public boolean redo() {
+
+        if(moveCount == redoTop) return false;
+        int move = moves[moveCount];
+        place(move >>> 2, (byte) (move & 3));
+        return true;
+    }
+
+
+    /**
+     * Number of stones on the move stack, i.e. on the board.
+     *
+     * @return number of moves
+     */
+    public int getMoveCount() {
+
+        return moveCount;
     }
 
 
     /**
-     * Checks whether the {@link Stone} array at the current mouse position is null.
-     * Uses {@link GameScreen#boardPos()} for mouse position.
+     * Cell of a move on the move stack.
      *
-     * @param gameScreen current {@link GameScreen}
+     * @param index 0 for the first move up to {@link #getMoveCount()}-1 for the last one
      *
-     * @return true if the position in the {@link Stone} array is null
+     * @return cell index
+     */
+    public int getMove(int index) {
+
+        return moves[index] >>> 2;
+    }
+
+
+    /**
+     * Checks whether a stone can be placed at a position.
+     *
+     * @param xPos x Position
+     * @param yPos y Position
+     *
+     * @return true if the position is on the board and empty
+     */
+    public boolean checkValid(int xPos, int yPos) {
+
+        return xPos>=0 && yPos>=0 && xPos<size && yPos<size && gameBoard[xPos*size+yPos] == StoneColor.EMPTY;
+    }
+
+
+    /**
+     * Checks whether a stone can be placed in a cell.
+     *
+     * @param cell cell index
+     *
+     * @return true if the cell is empty
+     */
+    public boolean checkValid(int cell) {
+
+        return gameBoard[cell] == StoneColor.EMPTY;
+    }
+
+
+    /**
+     * Used to check if the winning condition (5 stones in a row, or more if the {@link RuleEnum} allows it)
+     * is fullfilled. Looks up the run lengths of all four axes.
+     *
+     * @param cell cell index of the last stone
+     *
+     * @return true if the stone in the cell is part of a winning row
      *
      * @author Emilija Kastratovic
      */
-    public boolean checkValid(GameScreen gameScreen) {
+    public boolean checkWin(int cell) {
 
-        return gameBoard[gameScreen.boardPos().x][gameScreen.boardPos().y] == null;
+        return gameBoard[cell] != StoneColor.EMPTY &&
+               (wins(HORIZONTAL, cell) || wins(VERTICAL, cell) || wins(CROSS_UP, cell) || wins(CROSS_DOWN, cell));
     }
 
 
     /**
-     * Used to check if the winning condition (5 {@link Stone} in a row) is fullfilled.
-     * Calls recursive function {@link #checkWin(int, int, DirectionEnum, Color)} eight times.
-     * {@link #horizontal}, {@link #vertical}, {@link #crossUp}, {@link #crossDwn} used to track streak in all possible directions.
+     * Checks the winning condition for a {@link Stone} of the UI, see {@link #checkWin(int)}.
      *
      * @param xPos  current {@link Stone} x Position
      * @param yPos  current {@link Stone} y Position
@@ -79,94 +271,276 @@ public class GameBoard
      */
     public boolean checkWin(int xPos, int yPos, Color color) {
 
-        // 6 because when a stone is set, the methods for one direction are called twice.
-        horizontal = 6;
-        vertical = 6;
-        crossUp = 6;
-        crossDwn = 6;
-        return (checkWin(xPos, yPos, DirectionEnum.UP, color) ||
-                checkWin(xPos, yPos, DirectionEnum.DOWN, color) ||
-                checkWin(xPos, yPos, DirectionEnum.LEFT, color) ||
-                checkWin(xPos, yPos, DirectionEnum.RIGHT, color) ||
-                checkWin(xPos, yPos, DirectionEnum.UP_RIGHT, color) ||
-                checkWin(xPos, yPos, DirectionEnum.DOWN_LEFT, color) ||
-                checkWin(xPos, yPos, DirectionEnum.UP_LEFT, color) ||
-                checkWin(xPos, yPos, DirectionEnum.DOWN_RIGHT, color));
-
+        int cell = cell(xPos, yPos);
+        return gameBoard[cell] == Stone.encode(color) && checkWin(cell);
     }
 
 
     /**
-     * Recursive function used to find a winning streak in any direction.
-     * Called by {@link #checkWin(int, int, Color)} eight times.
-     * Any of {@link #horizontal}, {@link #vertical}, {@link #crossUp}, {@link #crossDwn}
-     * are decreased for each call if the next {@link Stone} is the same color.
+     * Checks the winning condition on the axis of one direction.
+     * Opposite directions, e.g. {@link DirectionEnum#LEFT} and {@link DirectionEnum#RIGHT}, share their axis.
      *
      * @param xPos  current {@link Stone} x Position
      * @param yPos  current {@link Stone} y Position
-     * @param dir   {@link DirectionEnum} next direction
+     * @param dir   {@link DirectionEnum} of the axis
      * @param color current {@link Stone} color
      *
-     * @return true if any {@link #horizontal}, {@link #vertical}, {@link #crossUp}, {@link #crossDwn} is exactly 0
+     * @return true if the {@link Stone} at the position has the color and is part of a winning row on the axis
      *
-     * @throws IndexOutOfBoundsException if outside of gameboard
      * @author Emilija Kastratovic
      */
     public boolean checkWin(int xPos, int yPos, DirectionEnum dir, Color color) {
 
-        try {
-            if(gameBoard[xPos][yPos] != null) {
-                Color currColor = gameBoard[xPos][yPos].getColor();
-                if(currColor == color) {
-                    switch(dir) {
-                        case UP:
-                            vertical--;
-                            return checkWin(xPos, yPos+1, DirectionEnum.UP, currColor);
-
-                        case DOWN:
-                            vertical--;
-                            return checkWin(xPos, yPos-1, DirectionEnum.DOWN, currColor);
-
-                        case RIGHT:
-                            horizontal--;
-                            return checkWin(xPos+1, yPos, DirectionEnum.RIGHT, currColor);
-
-                        case LEFT:
-                            horizontal--;
-                            return checkWin(xPos-1, yPos, DirectionEnum.LEFT, currColor);
-
-                        case UP_RIGHT:
-                            crossUp--;
-                            return checkWin(xPos+1, yPos+1, DirectionEnum.UP_RIGHT, currColor);
-
-                        case DOWN_LEFT:
-                            crossUp--;
-                            return checkWin(xPos-1, yPos-1, DirectionEnum.DOWN_LEFT, currColor);
-
-                        case DOWN_RIGHT:
-                            crossDwn--;
-                            return checkWin(xPos+1, yPos-1, DirectionEnum.DOWN_RIGHT, currColor);
-
-                        case UP_LEFT:
-                            crossDwn--;
-                            return checkWin(xPos-1, yPos+1, DirectionEnum.UP_LEFT, currColor);
-
-                    }
-                }
-            } else
-                return (horizontal == 0 || vertical == 0 || crossUp == 0 || crossDwn == 0);
-
-        } catch(IndexOutOfBoundsException e) {
-            return false;
-        }
+        int cell = cell(xPos, yPos);
+        return gameBoard[cell] == Stone.encode(color) && wins(axis(dir), cell);
+    }
+
+
+    /**
+     * Length of the row of same colored stones through a cell.
+     *
+     * @param cell cell index
+     * @param axis {@link #HORIZONTAL}, {@link #VERTICAL}, {@link #CROSS_UP} or {@link #CROSS_DOWN}
+     *
+     * @return number of stones in the row, 0 if the cell is empty
+     */
+    public int getRunLength(int cell, int axis) {
 
-        return false;
+        return runs[axis][cell];
     }
 
 
+    /**
+     * Length of the row of same colored stones through a position.
+     *
+     * @param xPos x Position
+     * @param yPos y Position
+     * @param dir  {@link DirectionEnum} of the axis
+     *
+     * @return number of stones in the row, 0 if the position is empty
+     */
+    public int getRunLength(int xPos, int yPos, DirectionEnum dir) {
+
+        return runs[axis(dir)][cell(xPos, yPos)];
+    }
+
+
+    /**
+     * Color of the stone in a cell.
+     *
+     * @param cell cell index
+     *
+     * @return {@link StoneColor}
+     */
+    public byte getColor(int cell) {
+
+        return gameBoard[cell];
+    }
+
+
+    /**
+     * Creates the {@link Stone} at the given position for the UI.
+     *
+     * @param x x Position
+     * @param y y Position
+     *
+     * @return {@link Stone} at the position or null if there is none
+     */
     public Stone getStone(int x, int y) {
 
-        return gameBoard[x][y];
+        byte color = gameBoard[cell(x, y)];
+        return color == StoneColor.EMPTY ? null : new Stone(Stone.decode(color), new Point(x, y));
+    }
+
+
+    public RuleEnum getRule() {
+
+        return rule;
+    }
+
+
+    public int getSize() {
+
+        return size;
+    }
+
+
+    /**
+     * Number of empty cells. The game is a tie when it reaches 0 without a winner.
+     *
+     * @return cells without a stone
+     */
+    public int getCounter() {
+
+        return counter;
+    }
+
+
+    /**
+     * Zobrist hash of the current position, the xor of {@link Zobrist#key(int, int, byte)} of all stones.
+     * Equal positions have equal hashes, no matter in which order the stones were added.
+     *
+     * @return 64 bit position hash, 0 for the empty board
+     */
+    public long getHash() {
+
+        return hash;
+    }
+
+
+    /**
+     * Immutable snapshot of the current position.
+     * O(1), the arrays are shared with the snapshot and only copied by the next change of the board.
+     *
+     * @return {@link BoardSnapshot} of the current position
+     */
+    public BoardSnapshot snapshot() {
+
+        if(snapshot == null) snapshot = new BoardSnapshot(size, rule, gameBoard, moves, moveCount, hash);
+        return snapshot;
+    }
+
+
+    /**
+     * Registers a {@link BoardListener} that is called after every added and removed stone.
+     *
+     * @param listener {@link BoardListener}
+     */
+    public void addListener(BoardListener listener) {
+
+        listeners = Arrays.copyOf(listeners, listeners.length+1);
+        listeners[listeners.length-1] = listener;
+    }
+
+
+    /**
+     * Removes a {@link BoardListener} registered with {@link #addListener(BoardListener)}.
+     *
+     * @param listener {@link BoardListener}
+     */
+    public void removeListener(BoardListener listener) {
+
+        for(int i = 0; i<listeners.length; i++) {
+            if(listeners[i] == listener) {
+                BoardListener[] rest = new BoardListener[listeners.length-1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i+1, rest, i, rest.length-i);
+                listeners = rest;
+                return;
+            }
+        }
+    }
+
+
+    private boolean wins(int axis, int cell) {
+
+        return runs[axis][cell] == 5 || runs[axis][cell]>5 && !rule.exactFive(gameBoard[cell]);
+    }
+
+
+    private static int axis(DirectionEnum dir) {
+
+        switch(dir) {
+            case LEFT:
+            case RIGHT:
+                return HORIZONTAL;
+            case UP:
+            case DOWN:
+                return VERTICAL;
+            case UP_RIGHT:
+            case DOWN_LEFT:
+                return CROSS_UP;
+            default:
+                return CROSS_DOWN;
+        }
+    }
+
+
+    /**
+     * Sets a cell, pushes it on the move stack and joins the rows of same colored stones next to it.
+     */
+    private void place(int cell, byte color) {
+
+        int x = cell/size;
+        int y = cell%size;
+        copyOnWrite();
+        gameBoard[cell] = color;
+        moves[moveCount++] = cell << 2 | color;
+        counter--;
+        hash ^= Zobrist.key(x, y, color);
+        for(int axis = 0; axis<4; axis++) {
+            int back  = count(x, y, -AXIS_X[axis], -AXIS_Y[axis], color);
+            int ahead = count(x, y, AXIS_X[axis], AXIS_Y[axis], color);
+            fillRun(axis, x-back*AXIS_X[axis], y-back*AXIS_Y[axis], back+1+ahead);
+        }
+        for(BoardListener listener : listeners) listener.stoneAdded(cell, color);
+    }
+
+
+    /**
+     * Clears a cell and splits the rows running through it into the parts before and after it.
+     */
+    private void remove(int cell) {
+
+        int  x     = cell/size;
+        int  y     = cell%size;
+        byte color = gameBoard[cell];
+        copyOnWrite();
+        gameBoard[cell] = StoneColor.EMPTY;
+        counter++;
+        hash ^= Zobrist.key(x, y, color);
+        for(int axis = 0; axis<4; axis++) {
+            int back  = count(x, y, -AXIS_X[axis], -AXIS_Y[axis], color);
+            int ahead = count(x, y, AXIS_X[axis], AXIS_Y[axis], color);
+            fillRun(axis, x-back*AXIS_X[axis], y-back*AXIS_Y[axis], back);
+            fillRun(axis, x+AXIS_X[axis], y+AXIS_Y[axis], ahead);
+            runs[axis][cell] = 0;
+        }
+        for(BoardListener listener : listeners) listener.stoneRemoved(cell, color);
+    }
+
+
+    /**
+     * Stops sharing the arrays with the last snapshot before they are changed.
+     */
+    private void copyOnWrite() {
+
+        if(snapshot != null) {
+            gameBoard = gameBoard.clone();
+            moves = moves.clone();
+            snapshot = null;
+        }
+    }
+
+
+    /**
+     * Counts the stones of a color next to a position, walking in one direction until the row ends.
+     */
+    private int count(int x, int y, int dx, int dy, byte color) {
+
+        int n = 0;
+        x += dx;
+        y += dy;
+        while(x>=0 && y>=0 && x<size && y<size && gameBoard[x*size+y] == color) {
+            n++;
+            x += dx;
+            y += dy;
+        }
+        return n;
+    }
+
+
+    /**
+     * Stores the length of a row at each of its cells, saturated to the range of a byte.
+     */
+    private void fillRun(int axis, int x, int y, int length) {
+
+        byte value = (byte) Math.min(length, Byte.MAX_VALUE);
+        for(int i = 0; i<length; i++) {
+            runs[axis][x*size+y] = value;
+            x += AXIS_X[axis];
+            y += AXIS_Y[axis];
+        }
     }
 
 }
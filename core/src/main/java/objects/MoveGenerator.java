@@ -0,0 +1,155 @@
+package objects;
+
+import java.util.Arrays;
+
+/**
+ * This is an incremental generator of candidate moves for a {@link GameBoard}.
+ *
+ * The candidates are the empty cells within a radius of 1 or 2 around any stone.
+ * For every cell the number of stones in its square around it is kept up to date with every added and removed stone,
+ * and the candidates are stored in a sparse set: a dense list of cells and the position of every cell in it.
+ * Adding and removing a candidate is O(1), iterating over them with {@link #getCount()} and {@link #get(int)}
+ * allocates nothing.
+ *
+ * The order of the candidates changes when cells are removed. Search code that changes the board while
+ * iterating copies the candidates with {@link #copyTo(int[], int)} first.
+ * The empty board has no candidates, the first move is up to the caller.
+ */
+public class MoveGenerator implements BoardListener
+{
+
+    private final GameBoard board;
+    private final int       size;
+    private final int       radius;
+    // stones in the square of the radius around each cell
+    private final short[]   near;
+    // candidate cells in the first count entries
+    private final int[]     list;
+    // position of each cell in list or -1
+    private final int[]     position;
+    private       int       count;
+
+
+    /**
+     * Constructor for MoveGenerator. Adds the stones already on the board and registers itself as listener.
+     *
+     * @param board  {@link GameBoard} to generate moves for
+     * @param radius 1 or 2, distance of the candidates from the stones in each direction
+     *
+     * @throws IllegalArgumentException if the radius is not 1 or 2
+     */
+    public MoveGenerator(GameBoard board, int radius) {
+
+        if(radius<1 || radius>2) throw new IllegalArgumentException("radius must be 1 or 2: "+radius);
+        this.board = board;
+        this.size = board.getSize();
+        this.radius = radius;
+        this.near = new short[size*size];
+        this.list = new int[size*size];
+        this.position = new int[size*size];
+        Arrays.fill(position, -1);
+        for(int i = 0; i<board.getMoveCount(); i++) stoneAdded(board.getMove(i), StoneColor.EMPTY);
+        board.addListener(this);
+    }
+
+
+    @Override
+    public void stoneAdded(int cell, byte color) {
+
+        remove(cell);
+        int x = cell/size;
+        int y = cell%size;
+        for(int cx = Math.max(0, x-radius); cx<=Math.min(size-1, x+radius); cx++) {
+            for(int cy = Math.max(0, y-radius); cy<=Math.min(size-1, y+radius); cy++) {
+                int other = cx*size+cy;
+                if(near[other]++ == 0 && board.getColor(other) == StoneColor.EMPTY) add(other);
+            }
+        }
+    }
+
+
+    @Override
+    public void stoneRemoved(int cell, byte color) {
+
+        int x = cell/size;
+        int y = cell%size;
+        for(int cx = Math.max(0, x-radius); cx<=Math.min(size-1, x+radius); cx++) {
+            for(int cy = Math.max(0, y-radius); cy<=Math.min(size-1, y+radius); cy++) {
+                int other = cx*size+cy;
+                if(--near[other] == 0) remove(other);
+            }
+        }
+        if(near[cell]>0) add(cell);
+    }
+
+
+    /**
+     * @return number of candidate moves
+     */
+    public int getCount() {
+
+        return count;
+    }
+
+
+    /**
+     * Candidate move by index.
+     *
+     * @param index 0 up to {@link #getCount()}-1
+     *
+     * @return cell index of an empty cell
+     */
+    public int get(int index) {
+
+        if(index>=count) throw new IndexOutOfBoundsException("candidate "+index+" of "+count);
+        return list[index];
+    }
+
+
+    /**
+     * Checks if a cell is a candidate move.
+     *
+     * @param cell cell index
+     *
+     * @return true if the cell is empty and near a stone
+     */
+    public boolean contains(int cell) {
+
+        return position[cell] >= 0;
+    }
+
+
+    /**
+     * Copies the candidate moves into an array, e.g. a preallocated buffer per search depth.
+     *
+     * @param moves  array with room for {@link #getCount()} more cells
+     * @param offset first index to write
+     *
+     * @return number of copied cells
+     */
+    public int copyTo(int[] moves, int offset) {
+
+        System.arraycopy(list, 0, moves, offset, count);
+        return count;
+    }
+
+
+    private void add(int cell) {
+
+        if(position[cell] >= 0) return;
+        position[cell] = count;
+        list[count++] = cell;
+    }
+
+
+    private void remove(int cell) {
+
+        int index = position[cell];
+        if(index<0) return;
+        int last = list[--count];
+        list[index] = last;
+        position[last] = index;
+        position[cell] = -1;
+    }
+
+}
@@ -0,0 +1,141 @@
+package objects;
+
+import java.util.Arrays;
+
+/**
+ * Patterns a stone forms on one line, used by {@link ThreatIndex}.
+ *
+ * The line around a cell is encoded as a base-3 code of the {@link #REACH} cells on each side:
+ * 0 for empty, 1 for an own stone and 2 for an opponent stone or the edge of the board.
+ * {@link #of(int, boolean)} looks up the pattern of a stone in the center cell in a precomputed table.
+ *
+ * Patterns are defined by what one more stone makes of them:
+ * a {@link #FOUR} can become a five in one way, an {@link #OPEN_FOUR} at both ends of the same four
+ * and a {@link #DOUBLE_FOUR} with two separate fours on the line,
+ * an {@link #OPEN_THREE} can become an open four and a {@link #THREE} only a four,
+ * an {@link #OPEN_TWO} can become an open three and a {@link #TWO} only a three.
+ */
+public final class Pattern
+{
+
+    public static final  byte     NONE        = 0;
+    public static final  byte     TWO         = 1;
+    public static final  byte     OPEN_TWO    = 2;
+    public static final  byte     THREE       = 3;
+    public static final  byte     OPEN_THREE  = 4;
+    public static final  byte     FOUR        = 5;
+    public static final  byte     OPEN_FOUR   = 6;
+    // two fours on the same line, e.g. X_XXX_X with the center in the middle
+    public static final  byte     DOUBLE_FOUR = 7;
+    public static final  byte     FIVE        = 8;
+    // six or more in a row where only exactly five win
+    public static final  byte     OVERLINE    = 9;
+    public static final  int      COUNT       = 10;
+    // cells on each side of the center that are part of the code
+    public static final  int      REACH       = 5;
+    public static final  int      CODES       = 59049;
+    static final         int      EMPTY       = 0;
+    static final         int      OWN         = 1;
+    static final         int      BLOCKED     = 2;
+    private static final int[]    POW         = new int[2*REACH];
+    private static final byte[][] TABLES      = new byte[2][];
+
+    static {
+        POW[0] = 1;
+        for(int i = 1; i<POW.length; i++) POW[i] = 3*POW[i-1];
+        TABLES[0] = table(false);
+        TABLES[1] = table(true);
+    }
+
+
+    private Pattern() {
+
+    }
+
+
+    /**
+     * Pattern of a stone in the center of a line.
+     *
+     * @param code      base-3 code of the line, see {@link #digit(int)}
+     * @param exactFive true if six or more in a row do not win
+     *
+     * @return one of the pattern constants
+     */
+    public static byte of(int code, boolean exactFive) {
+
+        return TABLES[exactFive ? 1 : 0][code];
+    }
+
+
+    /**
+     * Weight of a cell in the code.
+     *
+     * @param offset distance of the cell from the center, -{@link #REACH} to {@link #REACH} without 0
+     *
+     * @return power of 3 the cell content is multiplied with
+     */
+    public static int digit(int offset) {
+
+        return POW[offset<0 ? offset+REACH : offset+REACH-1];
+    }
+
+
+    private static byte[] table(boolean exactFive) {
+
+        byte[] table = new byte[CODES];
+        Arrays.fill(table, (byte) -1);
+        for(int code = 0; code<CODES; code++) classify(table, code, exactFive);
+        return table;
+    }
+
+
+    /**
+     * Classifies a code from the patterns of the codes with one more own stone, which are classified first.
+     */
+    private static byte classify(byte[] table, int code, boolean exactFive) {
+
+        if(table[code] >= 0) return table[code];
+
+        int run = 1+ownRun(code, -1)+ownRun(code, 1);
+        if(run == 5 || run>5 && !exactFive) return table[code] = FIVE;
+        if(run>5) return table[code] = OVERLINE;
+
+        int  fives = 0;
+        int  first = 0;
+        int  last  = 0;
+        byte best  = NONE;
+        // only cells within 4 can be part of a five with the center
+        for(int offset = -REACH+1; offset<REACH; offset++) {
+            if(offset == 0 || cellAt(code, offset) != EMPTY) continue;
+            byte next = classify(table, code+digit(offset), exactFive);
+            if(next == FIVE) {
+                if(fives++ == 0) first = offset;
+                last = offset;
+            }
+            else if(next == OPEN_FOUR || next == DOUBLE_FOUR) best = (byte) Math.max(best, OPEN_THREE);
+            else if(next == FOUR) best = (byte) Math.max(best, THREE);
+            else if(next == OPEN_THREE) best = (byte) Math.max(best, OPEN_TWO);
+            else if(next == THREE) best = (byte) Math.max(best, TWO);
+        }
+        // the two ends of an open four are 5 apart
+        if(fives == 2 && last-first == 5) return table[code] = OPEN_FOUR;
+        if(fives>=2) return table[code] = DOUBLE_FOUR;
+        if(fives == 1) return table[code] = FOUR;
+        return table[code] = best;
+    }
+
+
+    private static int cellAt(int code, int offset) {
+
+        return code/digit(offset)%3;
+    }
+
+
+    private static int ownRun(int code, int step) {
+
+        int run = 0;
+        for(int offset = step; Math.abs(offset)<=REACH && cellAt(code, offset) == OWN; offset += step) run++;
+        return run;
+    }
+
+}
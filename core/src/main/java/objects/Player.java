@@ -8,7 +8,7 @@ import java.awt.*;
 /**
  * This is the Player class.
  * It contains getters and setters {@link #getColor()}
- * {@link #setColor(Color)} and
+ * {@link #setColor(Color)}, {@link #getStoneColor()} and
  * {@link #getName()},
  * and {@link #placeStone(GameScreen, Point)} to place a {@link Stone} in the {@link GameBoard}.
  */
@@ -44,6 +44,17 @@ public class Player
     }
 
 
+    /**
+     * {@link Player} color as used by {@link GameBoard}.
+     *
+     * @return {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     */
+    public byte getStoneColor() {
+
+        return Stone.encode(color);
+    }
+
+
     public String getName() {
 
         return name;
@@ -54,7 +65,7 @@ public class Player
      * Creates a new {@link Stone} with current position and {@link Player} color.
      * Used to add Stone to {@link GameBoard}.
      *
-     * @param position   {@link Stone} position with {@link GameScreen#boardPos()}
+     * @param position   {@link Stone} position
      *
      * @return new {@link Stone}
      *
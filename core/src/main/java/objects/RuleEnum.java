@@ -0,0 +1,26 @@
+package objects;
+
+/**
+ * {@link Enum} for the winning rules of {@link GameBoard}.
+ *
+ * {@link #FREESTYLE} wins with five or more in a row, {@link #EXACT_FIVE} only with exactly five.
+ * {@link #RENJU} wins with exactly five for black and five or more for white,
+ * black must not play double-threes, double-fours and overlines, see {@link ThreatIndex#isForbidden(int)}.
+ */
+public enum RuleEnum
+{
+
+    FREESTYLE, EXACT_FIVE, RENJU;
+
+
+    /**
+     * @param color {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     *
+     * @return true if six or more in a row do not win for the color
+     */
+    public boolean exactFive(byte color) {
+
+        return this == EXACT_FIVE || this == RENJU && color == StoneColor.BLACK;
+    }
+
+}
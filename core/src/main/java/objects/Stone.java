@@ -7,6 +7,10 @@ import java.awt.*;
 /**
  * This is the Stone class.
  * Contains {@link #getPosition()} and {@link #getColor()}.
+ * Two stones are equal if they have the same color and position.
+ *
+ * The boards store {@link StoneColor} bytes and cell indices, a Stone is only the adapter for the UI.
+ * {@link #encode(Color)} and {@link #decode(byte)} convert between libGDX colors and {@link StoneColor}.
  */
 public class Stone
 {
@@ -33,4 +37,59 @@ public class Stone
         return color;
     }
 
+
+    /**
+     * Converts a {@link Player} color to its {@link StoneColor}.
+     *
+     * @param color {@link Color#BLACK} or {@link Color#WHITE}
+     *
+     * @return {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     *
+     * @throws IllegalArgumentException for any other color
+     */
+    public static byte encode(Color color) {
+
+        if(Color.BLACK.equals(color)) return StoneColor.BLACK;
+        if(Color.WHITE.equals(color)) return StoneColor.WHITE;
+        throw new IllegalArgumentException("no stone color: "+color);
+    }
+
+
+    /**
+     * Converts a {@link StoneColor} to the color it is drawn with. Does not allocate.
+     *
+     * @param color {@link StoneColor}
+     *
+     * @return {@link Color#BLACK}, {@link Color#WHITE} or null for {@link StoneColor#EMPTY}
+     */
+    public static Color decode(byte color) {
+
+        switch(color) {
+            case StoneColor.BLACK:
+                return Color.BLACK;
+            case StoneColor.WHITE:
+                return Color.WHITE;
+            default:
+                return null;
+        }
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+
+        if(this == o) return true;
+        if(!(o instanceof Stone)) return false;
+        Stone stone = (Stone) o;
+        return position.equals(stone.position) &&
+               (color == null ? stone.color == null : color.equals(stone.color));
+    }
+
+
+    @Override
+    public int hashCode() {
+
+        return 31*position.hashCode()+(color == null ? 0 : color.hashCode());
+    }
+
 }
@@ -0,0 +1,33 @@
+package objects;
+
+/**
+ * Primitive stone colors used by {@link GameBoard} and {@link BitBoard}.
+ * A cell holds one of these bytes instead of a {@link Stone} with a libGDX color,
+ * {@link Stone#encode(com.badlogic.gdx.graphics.Color)} and {@link Stone#decode(byte)} convert for the UI.
+ */
+public final class StoneColor
+{
+
+    public static final byte EMPTY = 0;
+    public static final byte BLACK = 1;
+    public static final byte WHITE = 2;
+
+
+    private StoneColor() {
+
+    }
+
+
+    /**
+     * The other {@link Player} color.
+     *
+     * @param color {@link #BLACK} or {@link #WHITE}
+     *
+     * @return {@link #WHITE} for {@link #BLACK} and the other way round
+     */
+    public static byte opponent(byte color) {
+
+        return (byte) (3-color);
+    }
+
+}
@@ -0,0 +1,245 @@
+package objects;
+
+/**
+ * This is an incremental index of the {@link Pattern}s on a {@link GameBoard}.
+ *
+ * For every color, cell and axis it keeps the pattern a stone of that color forms on the line through the cell:
+ * for an own stone the pattern it is part of, for an empty cell the pattern a stone placed there would form.
+ * The base-3 line code of every entry is stored as well. A stone changes one digit in the codes of the cells
+ * within {@link Pattern#REACH} along its four axes, so a move updates 88 codes and looks up their patterns
+ * without reading the board at all.
+ *
+ * {@link #getCount(byte, byte)} counts the patterns of the empty cells, which are the moves that create them:
+ * a {@link Pattern#FIVE} count of 1 is one winning move, an {@link Pattern#OPEN_FOUR} count of 2 is usually an open three.
+ *
+ * Under {@link RuleEnum#RENJU} {@link #isForbidden(int)} detects the forbidden moves of black from the patterns
+ * of the cell, so it is cheap enough to be called at every node of a search.
+ */
+public class ThreatIndex implements BoardListener
+{
+
+    private final GameBoard board;
+    private final RuleEnum  rule;
+    private final int       size;
+    private final int       cells;
+    // line code and pattern per color, indexed by axis*cells+cell
+    private final char[][]  codes;
+    private final byte[][]  patterns;
+    // patterns of the empty cells per color and pattern
+    private final int[][]   counts;
+
+
+    /**
+     * Constructor for ThreatIndex. Indexes the stones already on the board and registers itself as listener.
+     *
+     * @param board {@link GameBoard} to index
+     */
+    public ThreatIndex(GameBoard board) {
+
+        this.board = board;
+        this.rule = board.getRule();
+        this.size = board.getSize();
+        this.cells = size*size;
+        this.codes = new char[2][4*cells];
+        this.patterns = new byte[2][4*cells];
+        this.counts = new int[2][Pattern.COUNT];
+        for(int cell = 0; cell<cells; cell++) {
+            for(int axis = 0; axis<4; axis++) {
+                for(byte color = StoneColor.BLACK; color<=StoneColor.WHITE; color++) {
+                    codes[color-1][axis*cells+cell] = code(cell, axis, color);
+                    byte pattern = classify(cell, axis, color);
+                    patterns[color-1][axis*cells+cell] = pattern;
+                    if(board.getColor(cell) == StoneColor.EMPTY) counts[color-1][pattern]++;
+                }
+            }
+        }
+        board.addListener(this);
+    }
+
+
+    @Override
+    public void stoneAdded(int cell, byte color) {
+
+        refresh(cell, color, true);
+    }
+
+
+    @Override
+    public void stoneRemoved(int cell, byte color) {
+
+        refresh(cell, color, false);
+    }
+
+
+    /**
+     * Pattern of a color on one axis through a cell.
+     *
+     * @param cell  cell index
+     * @param axis  {@link GameBoard#HORIZONTAL}, {@link GameBoard#VERTICAL},
+     *              {@link GameBoard#CROSS_UP} or {@link GameBoard#CROSS_DOWN}
+     * @param color {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     *
+     * @return {@link Pattern} constant, {@link Pattern#NONE} for a stone of the other color
+     */
+    public byte getPattern(int cell, int axis, byte color) {
+
+        return patterns[color-1][axis*cells+cell];
+    }
+
+
+    /**
+     * Number of empty cells and axes where a stone of a color would form a pattern.
+     *
+     * @param color   {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     * @param pattern {@link Pattern} constant
+     *
+     * @return count over all empty cells and their four axes
+     */
+    public int getCount(byte color, byte pattern) {
+
+        return counts[color-1][pattern];
+    }
+
+
+    /**
+     * Checks if a move of black is forbidden under {@link RuleEnum#RENJU}:
+     * an overline, two fours or two open threes, unless the move makes exactly five.
+     *
+     * An open three only counts if one of the moves that make it an open four is not forbidden itself.
+     * That move is checked by its patterns without looking further, which is how the rule is usually implemented
+     * and correct except for rare nested positions.
+     *
+     * @param cell cell index of an empty cell
+     *
+     * @return true if black must not play the cell, always false for other rules
+     */
+    public boolean isForbidden(int cell) {
+
+        if(rule != RuleEnum.RENJU || board.getColor(cell) != StoneColor.EMPTY) return false;
+
+        byte[] black  = patterns[StoneColor.BLACK-1];
+        int    fours  = 0;
+        int    threes = 0;
+        for(int axis = 0; axis<4; axis++) {
+            byte pattern = black[axis*cells+cell];
+            if(pattern == Pattern.FIVE) return false;
+            if(pattern == Pattern.OVERLINE || pattern == Pattern.DOUBLE_FOUR) fours += 2;
+            else if(pattern == Pattern.FOUR || pattern == Pattern.OPEN_FOUR) fours++;
+            else if(pattern == Pattern.OPEN_THREE && realThree(cell, axis)) threes++;
+        }
+        return fours>=2 || threes>=2;
+    }
+
+
+    /**
+     * Checks if an open three of black can become an open four with a move that is not forbidden.
+     */
+    private boolean realThree(int cell, int axis) {
+
+        int x  = cell/size;
+        int y  = cell%size;
+        int dx = GameBoard.AXIS_X[axis];
+        int dy = GameBoard.AXIS_Y[axis];
+        for(int t = 1-Pattern.REACH; t<Pattern.REACH; t++) {
+            int cx = x+t*dx;
+            int cy = y+t*dy;
+            if(t == 0 || cx<0 || cy<0 || cx>=size || cy>=size) continue;
+            int next = cx*size+cy;
+            if(board.getColor(next) != StoneColor.EMPTY) continue;
+            int code = codes[StoneColor.BLACK-1][axis*cells+next]+Pattern.digit(-t)*Pattern.OWN;
+            if(Pattern.of(code, true) != Pattern.OPEN_FOUR) continue;
+            if(!forbiddenFour(next, axis)) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Checks if the move that makes an open four on an axis is forbidden by its patterns on the other axes.
+     */
+    private boolean forbiddenFour(int cell, int openAxis) {
+
+        byte[] black  = patterns[StoneColor.BLACK-1];
+        int    fours  = 1;
+        int    threes = 0;
+        for(int axis = 0; axis<4; axis++) {
+            if(axis == openAxis) continue;
+            byte pattern = black[axis*cells+cell];
+            if(pattern == Pattern.FIVE) return false;
+            if(pattern == Pattern.OVERLINE || pattern == Pattern.DOUBLE_FOUR) fours += 2;
+            else if(pattern == Pattern.FOUR || pattern == Pattern.OPEN_FOUR) fours++;
+            else if(pattern == Pattern.OPEN_THREE) threes++;
+        }
+        return fours>=2 || threes>=2;
+    }
+
+
+    /**
+     * Updates the codes and patterns of the cells on the four axes through a changed cell.
+     * An entry is counted while its cell is empty, the changed cell was empty before a stone was added.
+     */
+    private void refresh(int changed, byte stone, boolean added) {
+
+        int x = changed/size;
+        int y = changed%size;
+        for(int axis = 0; axis<4; axis++) {
+            int dx = GameBoard.AXIS_X[axis];
+            int dy = GameBoard.AXIS_Y[axis];
+            for(int t = -Pattern.REACH; t<=Pattern.REACH; t++) {
+                int cx = x+t*dx;
+                int cy = y+t*dy;
+                if(cx<0 || cy<0 || cx>=size || cy>=size) continue;
+                int     cell       = cx*size+cy;
+                boolean empty      = board.getColor(cell) == StoneColor.EMPTY;
+                boolean wasCounted = cell == changed ? added : empty;
+                for(byte color = StoneColor.BLACK; color<=StoneColor.WHITE; color++) {
+                    int index = axis*cells+cell;
+                    if(t != 0) {
+                        // the changed cell is at offset -t from this cell
+                        int digit = Pattern.digit(-t)*(stone == color ? Pattern.OWN : Pattern.BLOCKED);
+                        codes[color-1][index] += added ? digit : -digit;
+                    }
+                    byte pattern = classify(cell, axis, color);
+                    if(wasCounted) counts[color-1][patterns[color-1][index]]--;
+                    if(empty) counts[color-1][pattern]++;
+                    patterns[color-1][index] = pattern;
+                }
+            }
+        }
+    }
+
+
+    private byte classify(int cell, int axis, byte color) {
+
+        byte center = board.getColor(cell);
+        if(center != StoneColor.EMPTY && center != color) return Pattern.NONE;
+        return Pattern.of(codes[color-1][axis*cells+cell], rule.exactFive(color));
+    }
+
+
+    /**
+     * Reads the line code of a cell from the board, used once per entry when the index is created.
+     */
+    private char code(int cell, int axis, byte color) {
+
+        int x    = cell/size;
+        int y    = cell%size;
+        int dx   = GameBoard.AXIS_X[axis];
+        int dy   = GameBoard.AXIS_Y[axis];
+        int code = 0;
+        for(int offset = -Pattern.REACH; offset<=Pattern.REACH; offset++) {
+            if(offset == 0) continue;
+            int cx = x+offset*dx;
+            int cy = y+offset*dy;
+            int content;
+            if(cx<0 || cy<0 || cx>=size || cy>=size) content = Pattern.BLOCKED;
+            else {
+                byte stone = board.getColor(cx*size+cy);
+                content = stone == color ? Pattern.OWN : stone == StoneColor.EMPTY ? Pattern.EMPTY : Pattern.BLOCKED;
+            }
+            code += content*Pattern.digit(offset);
+        }
+        return (char) code;
+    }
+
+}
@@ -0,0 +1,39 @@
+package objects;
+
+/**
+ * Zobrist keys for the position hash of {@link GameBoard}.
+ *
+ * The hash of a position is the xor of the keys of all its stones,
+ * so adding or removing a {@link Stone} updates it with a single xor.
+ * Instead of a random table the keys are derived from position and color with the SplitMix64 finalizer.
+ * They are the same for every board size and every run of the program, so hashes can be stored and compared later.
+ */
+public final class Zobrist
+{
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+
+    private Zobrist() {
+
+    }
+
+
+    /**
+     * Key of a stone.
+     *
+     * @param x     x Position
+     * @param y     y Position
+     * @param color {@link StoneColor#BLACK} or {@link StoneColor#WHITE}
+     *
+     * @return 64 bit key
+     */
+    public static long key(int x, int y, byte color) {
+
+        long z = SEED*(((long) x << 33 | (long) y << 1 | (color-1))+1);
+        z = (z ^ z >>> 30)*0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27)*0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+}
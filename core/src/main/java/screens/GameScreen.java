@@ -19,17 +19,33 @@ import com.badlogic.gdx.scenes.scene2d.ui.*;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import engine.Heatmap;
+import engine.OpeningBook;
+import engine.Ponder;
+import engine.Search;
+import engine.SearchResult;
+import engine.Swap2Decision;
+import engine.TranspositionTable;
 import io.swapastack.gomoku.CustomLabel;
 import io.swapastack.gomoku.Gomoku;
 import io.swapastack.gomoku.SimpleClient;
 import io.swapastack.gomoku.Tuple;
 import io.swapastack.gomoku.shared.History;
+import objects.BoardSnapshot;
 import objects.GameBoard;
 import objects.Player;
 import objects.Stone;
+import objects.StoneColor;
 import objects.Swap2Enum;
 
-import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This is the GameScreen class.
@@ -51,6 +67,37 @@ public class GameScreen implements Screen
     public static final  int                grid_size_       = 15;
     private static final float              padding          = 100.f;
     private static final float              line_width       = 2.f;
+    // time budget of the computer player per move in milliseconds
+    private static final long               computerTime     = 1000;
+    // transposition table of the computer player in MB, kept from game to game
+    private static final int                computerTableMb  = 64;
+    private static       TranspositionTable computerTable;
+    // opening book of the computer player in the assets, only used if the file exists
+    private static final String             computerBookFile = "opening.book";
+    private static       OpeningBook        computerBook;
+    private static       boolean            computerBookOpened;
+    // share of one core for pondering on the time of the human player in percent
+    private static final int                computerShare    = 50;
+    private static       Ponder             computerPonder;
+    // black, white or pass of the computer player in swap2
+    private static       Swap2Decision      computerSwap2;
+    // move-score overlay, scored for this long per position with this share of one core
+    private static final long               analysisTime     = 10000;
+    private static final int                analysisShare    = 50;
+    private static final int                analysisTableMb  = 16;
+    private static       Heatmap            analysis;
+    // the computer player searches here and never on the render thread
+    private static final ExecutorService    computerThread   = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "computer player");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     public static        SimpleClient       simpleClient;
     // server
     public static        boolean            historySaveError = false;
@@ -90,6 +137,8 @@ public class GameScreen implements Screen
     // Players and Gameboard
     private final        Player[]           players          = new Player[2];
     private final        GameBoard          gameBoard;
+    // latest position for other threads, replaced after every stone
+    private volatile     BoardSnapshot      position;
     private final        CustomLabel        winTxt;
     private final        CustomLabel        playerTurn;
     private              boolean            insideBoard;
@@ -97,10 +146,19 @@ public class GameScreen implements Screen
     private              int                hotSeat          = 0;
     private              boolean            isIie            = false;
     private              Player             winner;
-    private              Stone              lastPlaced       = new Stone(Color.BLACK, new Point(0, 0));
+    // cell index of the last stone, -1 before the first one
+    private              int                lastPlaced       = -1;
     private              Swap2Enum          swap2stage       = Swap2Enum.FIRST_PLAYER_TURN;
     private              int                counter          = 0;
     private              boolean            swap2            = true;
+    // player two is the computer, also in swap2
+    private final        boolean            computer         = PlayerNameScreen.computerOpponent;
+    private              Future<SearchResult> computerMove;
+    private              Future<Swap2Decision.Choice> computerChoice;
+    // heatmap overlay, toggled by a button
+    private              boolean            showAnalysis     = false;
+    private              long               analysisHash;
+    private              byte               analysisColor    = StoneColor.EMPTY;
 
 
     /**
@@ -174,12 +232,32 @@ public class GameScreen implements Screen
             public void touchUp(InputEvent event, float x, float y, int pointer,
                                 int button) {
 
-                // counter needs to be reset to initial value
-                GameBoard.counter = grid_size_*grid_size_;
                 parent_.change_screen(ScreenEnum.GAME);
             }
         });
 
+        // heatmap overlay button
+        Button analysis_button = new TextButton("HEATMAP", skin_);
+        analysis_button.setPosition(25.f, 175.f);
+        analysis_button.addListener(new InputListener()
+        {
+
+            @Override
+            public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
+
+                return true;
+            }
+
+
+            @Override
+            public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
+
+                showAnalysis = !showAnalysis;
+                if(!showAnalysis && analysis != null) analysis.cancel();
+                analysisColor = StoneColor.EMPTY;
+            }
+        });
+
         // create color buttons
         black = new TextButton("Black", skin_);
         black.setPosition(25.f, 270.f);
@@ -241,7 +319,8 @@ public class GameScreen implements Screen
         });
 
         // init gameboard and players
-        gameBoard = new GameBoard();
+        gameBoard = new GameBoard(grid_size_);
+        position = gameBoard.snapshot();
         players[0] = new Player(PlayerNameScreen.playerOneNameTextField.getText());
         players[1] = new Player(PlayerNameScreen.playerTwoNameTextField.getText());
         players[0].setColor(Color.BLACK);
@@ -327,6 +406,7 @@ public class GameScreen implements Screen
         stage_.addActor(playerTurn);
         stage_.addActor(menu_screen_button);
         stage_.addActor(reset_game_button);
+        stage_.addActor(analysis_button);
         stage_.addActor(tie);
         stage_.addActor(black);
         stage_.addActor(white);
@@ -359,6 +439,7 @@ public class GameScreen implements Screen
         sprite_batch_.end();
 
         drawGrid();
+        drawHeatmap();
         if(winner == null ^ isIie) {
             showPlayerTurn();
             logic();
@@ -382,9 +463,9 @@ public class GameScreen implements Screen
     /**
      * Determines closest grid cross. Used for {@link Stone} placement.
      *
-     * @return Integer Point that has an x and y value
+     * @return cell index of the grid cross, see {@link GameBoard#cell(int, int)}
      */
-    public Point boardPos() {
+    public int boardPos() {
 
         int    mouseX          = Gdx.input.getX();
         int    mouseY          = Gdx.input.getY();
@@ -403,10 +484,18 @@ public class GameScreen implements Screen
                 }
             }
         }
-        Point pos = new Point();
-        pos.x = minX;
-        pos.y = minY;
-        return pos;
+        return gameBoard.cell(minX, minY);
+    }
+
+
+    /**
+     * Checks whether a {@link Stone} can be placed at the current mouse position.
+     *
+     * @return true if the closest grid cross is empty
+     */
+    private boolean checkValid() {
+
+        return gameBoard.checkValid(boardPos());
     }
 
 
@@ -436,6 +525,45 @@ public class GameScreen implements Screen
     }
 
 
+    /**
+     * Draws the score of every candidate move of the player to move, from blue for the worst to red for the best,
+     * if the overlay is on. A new position is handed to the {@link Heatmap} worker and the latest map of
+     * the current position is drawn, so the map refines while the worker searches deeper.
+     * Only reads what the worker published, the frame loop never waits for it.
+     */
+    private void drawHeatmap() {
+
+        if(!showAnalysis || swap2 || winner != null || isIie || computerTurn()) {
+            if(analysis != null && analysisColor != StoneColor.EMPTY) analysis.cancel();
+            analysisColor = StoneColor.EMPTY;
+            return;
+        }
+        BoardSnapshot current = position;
+        byte          color   = players[hotSeat].getStoneColor();
+        if(analysis == null) analysis = new Heatmap(new TranspositionTable(analysisTableMb), analysisTime, analysisShare);
+        if(current.getHash() != analysisHash || color != analysisColor) {
+            analysisHash = current.getHash();
+            analysisColor = color;
+            analysis.start(current, color);
+        }
+
+        Heatmap.Frame frame = analysis.getFrame();
+        if(frame == null || frame.getHash() != current.getHash() || frame.getColor() != color) return;
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shape_renderer_.begin(ShapeType.Filled);
+        for(int cell = 0; cell<grid_size_*grid_size_; cell++) {
+            float heat = frame.getHeat(cell);
+            if(heat<0) continue;
+            shape_renderer_.setColor(heat, 0.2f, 1-heat, 0.6f);
+            shape_renderer_.circle(top_left_x+gameBoard.cellX(cell)*offset,
+                                   padding+(grid_size_-gameBoard.cellY(cell)-1)*offset, cell == frame.getBestMove() ? 12 : 9);
+        }
+        shape_renderer_.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+
     /**
      * Draws the {@link Stone} on the gameboard.
      * Draws a green or red hover stone if position is valid or invalid respectively.
@@ -448,22 +576,23 @@ public class GameScreen implements Screen
         shape_renderer_.begin(ShapeType.Filled);
         for(int x = 0; x<grid_size_; x++) {
             for(int y = 0; y<grid_size_; y++) {
-                Stone currentStone = gameBoard.getStone(x, grid_size_-y-1);
-                if(currentStone != null) {
-                    shape_renderer_.setColor(currentStone.getColor());
+                byte currentStone = gameBoard.getColor(gameBoard.cell(x, grid_size_-y-1));
+                if(currentStone != StoneColor.EMPTY) {
+                    shape_renderer_.setColor(Stone.decode(currentStone));
                     shape_renderer_.circle(top_left_x+x*offset, padding+y*offset, 16);
                 }
             }
         }
-        Point hover = boardPos();
+        int hover = boardPos();
         if(winner == null ^ isIie) {
             if(insideBoard) {
-                if(gameBoard.checkValid(this)) {
+                if(gameBoard.checkValid(hover)) {
                     shape_renderer_.setColor(Color.GREEN);
                 } else {
                     shape_renderer_.setColor(Color.RED);
                 }
-                shape_renderer_.circle(top_left_x+hover.x*offset, padding+(grid_size_-hover.y-1)*offset, 16);
+                shape_renderer_.circle(top_left_x+gameBoard.cellX(hover)*offset,
+                                       padding+(grid_size_-gameBoard.cellY(hover)-1)*offset, 16);
             }
         }
         shape_renderer_.end();
@@ -479,9 +608,13 @@ public class GameScreen implements Screen
     private void logic() {
 
         // add stone
-        if(Gdx.input.isButtonJustPressed(Input.Buttons.LEFT)) {
+        if(computerTurn()) {
+            computer();
+        } else if(computer && swap2 && swap2stage == Swap2Enum.SECOND_PLAYER_TURN && winner == null) {
+            computerSwap2();
+        } else if(Gdx.input.isButtonJustPressed(Input.Buttons.LEFT)) {
             if(swap2) {
-                if(gameBoard.checkValid(this)) {
+                if(checkValid()) {
                     swap2();
                     if(insideBoard) {
                         counter++;
@@ -497,7 +630,7 @@ public class GameScreen implements Screen
         if(winner != null) showWinner();
 
         // check tie
-        if(GameBoard.counter == 0) {
+        if(gameBoard.getCounter() == 0) {
             sprite_batch_.begin();
             isIie = true;
             playerTurn.setVisible(false);
@@ -517,22 +650,181 @@ public class GameScreen implements Screen
      */
     private void normal() {
 
-        if(gameBoard.checkValid(this)) {
+        if(checkValid()) {
             setLastPlaced(hotSeat);
-            if(GameBoard.counter != 0 && winner == null) {
-                GameBoard.counter--;
+            nextTurn();
+        }
+    }
+
+
+    /**
+     * Checks if there is a winner after a stone was placed and swaps the player turn.
+     */
+    private void nextTurn() {
+
+        if(winner == null) {
+            if(lastPlaced>=0) {
+                if(gameBoard.checkWin(lastPlaced)) {
+                    winner = players[hotSeat];
+                    sendWinner();
+                }
+            }
+        }
+        if(hotSeat == 0) hotSeat = 1;
+        else hotSeat = 0;
+    }
+
+
+    /**
+     * Checks whether the computer player is to move.
+     * The first stones of {@link #swap2()} are placed by hand, the computer then decides as player two
+     * in {@link #computerSwap2()} and plays after swap2 is over.
+     *
+     * @return true if the computer places the next {@link Stone}
+     */
+    private boolean computerTurn() {
+
+        return computer && !swap2 && hotSeat == 1 && winner == null;
+    }
+
+
+    /**
+     * Turn of the computer player. Looks up the {@link OpeningBook}, takes over the {@link Ponder} search if the human
+     * played the predicted move or starts a {@link Search}, all on the {@link #computerThread}.
+     * The move is placed in a later frame, when it is done, then pondering starts. The frame loop never waits for the search.
+     */
+    private void computer() {
+
+        if(computerMove == null) {
+            if(computerTable == null) {
+                computerTable = new TranspositionTable(computerTableMb);
+                computerPonder = new Ponder(computerTable, computerShare);
             }
-            if(winner == null) {
-                if(lastPlaced != null) {
-                    if(gameBoard.checkWin(lastPlaced.getPosition().x, lastPlaced.getPosition().y, players[hotSeat].getColor())) {
-                        winner = players[hotSeat];
-                        sendWinner();
+            final BoardSnapshot      current = position;
+            final byte               color   = players[1].getStoneColor();
+            final TranspositionTable table   = computerTable;
+            final Ponder             ponder  = computerPonder;
+            computerMove = computerThread.submit(new Callable<SearchResult>()
+            {
+
+                @Override
+                public SearchResult call() {
+
+                    OpeningBook book = openingBook();
+                    int         move = book == null ? -1 : book.probe(current, color);
+                    if(move>=0) {
+                        ponder.cancel();
+                        return new SearchResult(move, 0, 0, 0, 0);
                     }
+                    SearchResult pondered = ponder.hit(current, computerTime);
+                    if(pondered != null && pondered.getMove()>=0) return pondered;
+                    return new Search(current, table).search(color, computerTime);
+                }
+            });
+        } else if(computerMove.isDone()) {
+            try {
+                SearchResult result = computerMove.get();
+                Gdx.app.log("computer", result.toString());
+                lastPlaced = result.getMove();
+                gameBoard.addStone(lastPlaced, players[1].getStoneColor());
+                position = gameBoard.snapshot();
+                nextTurn();
+                if(winner == null && !isIie) computerPonder.start(position, players[1].getStoneColor());
+            } catch(InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            computerMove = null;
+        }
+    }
+
+
+    /**
+     * Decision of the computer player as the second player of {@link #swap2()}, made by {@link Swap2Decision}
+     * on the {@link #computerThread}, with the white move from the {@link OpeningBook} if it has the position.
+     * Black leaves the next stone to the first player, white places it,
+     * a pass places one black and one white stone and lets the first player choose the color.
+     * As in {@link #computer()} the frame loop never waits for the searches.
+     */
+    private void computerSwap2() {
+
+        if(computerChoice == null) {
+            black.setVisible(false);
+            white.setVisible(false);
+            both.setVisible(false);
+            if(computerSwap2 == null) computerSwap2 = new Swap2Decision(Runtime.getRuntime().availableProcessors());
+            final BoardSnapshot current  = position;
+            final Swap2Decision decision = computerSwap2;
+            computerChoice = computerThread.submit(new Callable<Swap2Decision.Choice>()
+            {
+
+                @Override
+                public Swap2Decision.Choice call() {
+
+                    return decision.decide(current, computerTime, openingBook());
                 }
+            });
+        } else if(computerChoice.isDone()) {
+            try {
+                Swap2Decision.Choice choice = computerChoice.get();
+                Gdx.app.log("computer", choice.toString());
+                int[] moves = choice.getMoves();
+                switch(choice.getChoice()) {
+                    case CHOICE_BLACK:
+                        players[0].setColor(Color.WHITE);
+                        players[1].setColor(Color.BLACK);
+                        swap2 = false;
+                        break;
+                    case CHOICE_WHITE:
+                        players[0].setColor(Color.BLACK);
+                        players[1].setColor(Color.WHITE);
+                        placeComputer(moves[0], StoneColor.WHITE);
+                        swap2 = false;
+                        break;
+                    case PLAYER_PASS:
+                        placeComputer(moves[0], StoneColor.BLACK);
+                        placeComputer(moves[1], StoneColor.WHITE);
+                        players[1].setColor(Color.WHITE);
+                        black.setVisible(true);
+                        white.setVisible(true);
+                        swap2stage = Swap2Enum.PLAYER_PASS;
+                        counter = 2;
+                        break;
+                }
+                hotSeat = 0;
+            } catch(InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            computerChoice = null;
+        }
+    }
+
+
+    private void placeComputer(int cell, byte color) {
+
+        lastPlaced = cell;
+        gameBoard.addStone(cell, color);
+        position = gameBoard.snapshot();
+    }
+
+
+    /**
+     * Opens the {@link OpeningBook} of the computer player once. Only called on the {@link #computerThread},
+     * so the render thread never waits for the file.
+     *
+     * @return {@link OpeningBook} or null if there is none
+     */
+    private static OpeningBook openingBook() {
+
+        if(!computerBookOpened) {
+            computerBookOpened = true;
+            File file = Gdx.files.internal(computerBookFile).file();
+            try {
+                if(file.isFile()) computerBook = new OpeningBook(file);
+            } catch(IOException e) {
+                e.printStackTrace();
             }
-            if(hotSeat == 0) hotSeat = 1;
-            else hotSeat = 0;
         }
+        return computerBook;
     }
 
 
@@ -555,7 +847,7 @@ public class GameScreen implements Screen
 
                 black.setVisible(false);
                 white.setVisible(false);
-                if(Gdx.input.isButtonJustPressed(Input.Buttons.LEFT) && insideBoard && gameBoard.checkValid(this)) {
+                if(Gdx.input.isButtonJustPressed(Input.Buttons.LEFT) && insideBoard && checkValid()) {
                     switch(counter) {
                         case 0:
                             players[0].setColor(Color.BLACK);
@@ -668,7 +960,7 @@ public class GameScreen implements Screen
 
 
     /**
-     * Sets {@link #lastPlaced} {@link Stone} and adds it to current {@link GameBoard}.
+     * Sets {@link #lastPlaced} cell and adds a stone of the {@link Player} to current {@link GameBoard}.
      *
      * @param index current Player
      *
@@ -677,8 +969,9 @@ public class GameScreen implements Screen
     private void setLastPlaced(int index) {
 
         if(insideBoard) {
-            lastPlaced = players[index].placeStone(boardPos());
-            gameBoard.addStone(lastPlaced);
+            lastPlaced = boardPos();
+            gameBoard.addStone(lastPlaced, players[index].getStoneColor());
+            position = gameBoard.snapshot();
         }
     }
 
@@ -724,6 +1017,18 @@ public class GameScreen implements Screen
     }
 
 
+    /**
+     * Latest position of the game. Safe to call from any thread,
+     * the {@link BoardSnapshot} is immutable and replaced by the render thread after every stone.
+     *
+     * @return {@link BoardSnapshot} of the {@link GameBoard}
+     */
+    public BoardSnapshot getPosition() {
+
+        return position;
+    }
+
+
     /**
      * sends winner to {@link SimpleClient}
      *
@@ -833,6 +1138,9 @@ public class GameScreen implements Screen
     @Override
     public void hide() {
 
+        if(computerPonder != null) computerPonder.cancel();
+        if(analysis != null) analysis.cancel();
+        analysisColor = StoneColor.EMPTY;
     }
 
 
@@ -47,6 +47,9 @@ public class PlayerNameScreen implements Screen
     private final Skin               skin_;
     public static TextField          playerOneNameTextField;
     public static TextField          playerTwoNameTextField;
+    // player two is played by the computer
+    public static boolean            computerOpponent;
+    private final CheckBox           computerCheckBox;
     private final SpriteBatch        batch;
     // Texture
     private final Texture            background_texture_;
@@ -102,6 +105,10 @@ public class PlayerNameScreen implements Screen
         playerTwoNameTextField.setPosition(dimensions.first/2f-(playButton.getWidth()/2f)+250, dimensions.second/2f-(playButton.getHeight()/2f));
         playerTwoNameTextField.setSize(200, 60);
 
+        // create computer opponent check box
+        computerCheckBox = new CheckBox(" Computer", skin_);
+        computerCheckBox.setPosition(dimensions.first/2f-(playButton.getWidth()/2f)+250, dimensions.second/2f-(playButton.getHeight()/2f)-50);
+        computerCheckBox.setChecked(computerOpponent);
 
         // add InputListener to Button, and close app if Button is clicked
         playButton.addListener(new InputListener()
@@ -117,6 +124,7 @@ public class PlayerNameScreen implements Screen
             @Override
             public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
 
+                computerOpponent = computerCheckBox.isChecked();
                 try {
                     GameScreen.simpleClient = new SimpleClient(new URI(String.format("ws://%s:%d", MainMenuScreen.host, MainMenuScreen.port)));
                     GameScreen.simpleClient.connectBlocking();
@@ -151,6 +159,7 @@ public class PlayerNameScreen implements Screen
         stage_.addActor(back_button_);
         stage_.addActor(playerOneNameTextField);
         stage_.addActor(playerTwoNameTextField);
+        stage_.addActor(computerCheckBox);
         stage_.addActor(playButton);
     }
 
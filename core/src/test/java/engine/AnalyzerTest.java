@@ -0,0 +1,102 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.BoardSnapshot;
+import objects.RuleEnum;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link Analyzer}.
+ */
+public class AnalyzerTest extends TestCase
+{
+
+    public void testParseMoves() {
+
+        BoardSnapshot position = Analyzer.parse("h8 i9, h9", 15);
+        assertEquals(3, position.getMoveCount());
+        assertEquals(StoneColor.BLACK, position.getColor(position.cell(7, 7)));
+        assertEquals(StoneColor.WHITE, position.getColor(position.cell(8, 8)));
+        assertEquals(StoneColor.BLACK, position.getColor(position.cell(7, 8)));
+        assertEquals(StoneColor.WHITE, Analyzer.toMove(position));
+
+        BoardSnapshot record = Analyzer.parse("hhiihi", 15);
+        assertEquals(position.getHash(), record.getHash());
+        assertEquals("h8", Analyzer.name(position.cell(7, 7), 15));
+        assertEquals("-", Analyzer.name(-1, 15));
+    }
+
+
+    public void testParseBoard() {
+
+        StringBuilder board = new StringBuilder();
+        for(int x = 0; x<5; x++) {
+            if(x>0) board.append('/');
+            board.append(x == 2 ? "..xo." : ".....");
+        }
+        BoardSnapshot position = Analyzer.parse(board.toString(), 5);
+        assertEquals(StoneColor.BLACK, position.getColor(position.cell(2, 2)));
+        assertEquals(StoneColor.WHITE, position.getColor(position.cell(2, 3)));
+        assertEquals(StoneColor.BLACK, Analyzer.toMove(position));
+    }
+
+
+    public void testParseErrors() {
+
+        String[] lines = {"h8 h8", "z1", "h99", "h8 ?"};
+        for(String line : lines) {
+            try {
+                Analyzer.parse(line, 15);
+                fail(line);
+            } catch(IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+
+    public void testAnalyze() {
+
+        BoardSnapshot[] positions = {
+                // black wins with a four
+                Analyzer.parse("e8 e10 f8 f10 g8 g10 h8 d8", 15),
+                // white has to block the four of black
+                Analyzer.parse("e8 d8 f8 f10 g8 g10 h8", 15),
+                Analyzer.parse("h8", 15),
+                Analyzer.parse("", 15)
+        };
+        Analyzer       analyzer = new Analyzer(2, 500, 3);
+        SearchResult[] results  = analyzer.analyze(positions);
+        analyzer.shutdown();
+
+        assertEquals(positions.length, results.length);
+        assertEquals("i8", Analyzer.name(results[0].getMove(), 15));
+        assertTrue(results[0].isMate());
+        assertEquals("i8", Analyzer.name(results[1].getMove(), 15));
+        assertTrue(positions[2].getColor(results[2].getMove()) == StoneColor.EMPTY);
+        assertEquals("h8", Analyzer.name(results[3].getMove(), 15));
+    }
+
+
+    public void testSolve() {
+
+        BoardSnapshot[] positions = {
+                // black wins with fours only
+                Analyzer.parse("e8 e10 f8 f10 g8 g10 h8 d8", 15, RuleEnum.RENJU),
+                // white has to block, no victory by fours
+                Analyzer.parse("e8 d8 f8 f10 g8 g10 h8", 15, RuleEnum.RENJU)
+        };
+        assertEquals(RuleEnum.RENJU, positions[0].getRule());
+        boolean[]      proven   = new boolean[positions.length];
+        Analyzer       analyzer = new Analyzer(2, 500, 3, true);
+        SearchResult[] results  = analyzer.analyze(positions, proven);
+        analyzer.shutdown();
+
+        assertTrue(proven[0]);
+        assertEquals("i8", Analyzer.name(results[0].getMove(), 15));
+        assertEquals(Search.WIN-1, results[0].getScore());
+        assertFalse(proven[1]);
+        assertEquals("i8", Analyzer.name(results[1].getMove(), 15));
+    }
+
+}
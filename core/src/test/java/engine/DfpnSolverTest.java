@@ -0,0 +1,136 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Tests for {@link DfpnSolver}.
+ */
+public class DfpnSolverTest extends TestCase
+{
+
+    public void testWin() throws IOException {
+
+        // black has an open three and moves
+        BoardSnapshot position = Analyzer.parse("h8 a1 h9 a2 h10 a14", 15);
+        DfpnSolver    solver   = new DfpnSolver(position, StoneColor.BLACK, 1, 1);
+        assertEquals(DfpnSolver.WIN, solver.solve(10000));
+        assertEquals(DfpnSolver.WIN, solver.getResult());
+        assertEquals(StoneColor.EMPTY, position.getColor(solver.getBestMove()));
+    }
+
+
+    public void testLoss() throws IOException {
+
+        // white can not block both ends of the open four
+        BoardSnapshot position = Analyzer.parse("h8 a1 h9 a2 h10 a3 h11", 15);
+        DfpnSolver    solver   = new DfpnSolver(position, StoneColor.WHITE, 1, 1);
+        assertEquals(DfpnSolver.LOSS, solver.solve(10000));
+        assertEquals(-1, solver.getBestMove());
+    }
+
+
+    public void testDraw() throws IOException {
+
+        // there is no room for five on a 4x4 board
+        DfpnSolver solver = new DfpnSolver(new GameBoard(4).snapshot(), StoneColor.BLACK, 0, 1);
+        assertEquals(DfpnSolver.DRAW, solver.solve(10000));
+        assertTrue(solver.getBestMove()>=0);
+    }
+
+
+    /**
+     * Compares random 5x5 positions with a plain minimax over all moves.
+     */
+    public void testMinimax() throws IOException {
+
+        Random random = new Random(1);
+        int    solved = 0;
+        while(solved<10) {
+            GameBoard board = new GameBoard(5);
+            byte      color = StoneColor.BLACK;
+            boolean   five  = false;
+            for(int i = 0; i<17 && !five; i++) {
+                int cell;
+                do {
+                    cell = random.nextInt(25);
+                } while(board.getColor(cell) != StoneColor.EMPTY);
+                board.addStone(cell, color);
+                five = board.checkWin(cell);
+                color = StoneColor.opponent(color);
+            }
+            if(five) continue;
+            int        expected = minimax(board, color);
+            DfpnSolver solver   = new DfpnSolver(board.snapshot(), color, 0, 1);
+            assertEquals(expected, solver.solve(10000));
+            if(expected != DfpnSolver.LOSS) {
+                int move = solver.getBestMove();
+                board.addStone(move, color);
+                assertEquals(expected, board.checkWin(move) ? DfpnSolver.WIN : -minimax(board, StoneColor.opponent(color)));
+                board.undo();
+            }
+            solved++;
+        }
+    }
+
+
+    private static int minimax(GameBoard board, byte color) {
+
+        int best = Integer.MIN_VALUE;
+        for(int cell = 0; cell<board.getSize()*board.getSize() && best != DfpnSolver.WIN; cell++) {
+            if(board.getColor(cell) != StoneColor.EMPTY) continue;
+            board.addStone(cell, color);
+            best = Math.max(best, board.checkWin(cell) ? DfpnSolver.WIN : -minimax(board, StoneColor.opponent(color)));
+            board.undo();
+        }
+        // a full board is a draw
+        return best == Integer.MIN_VALUE ? DfpnSolver.DRAW : best;
+    }
+
+
+    public void testCheckpoint() throws IOException {
+
+        File file = File.createTempFile("dfpn", ".checkpoint");
+        try {
+            BoardSnapshot empty  = new GameBoard(5).snapshot();
+            DfpnSolver    solver = new DfpnSolver(empty, StoneColor.BLACK, 0, 1);
+            assertEquals(DfpnSolver.UNKNOWN, solver.solve(50));
+            solver.write(file);
+
+            DfpnSolver resumed = new DfpnSolver(empty, StoneColor.BLACK, 0, 2);
+            assertTrue(resumed.restore(file));
+            assertEquals(solver.getNodes(), resumed.getNodes());
+            assertTrue(resumed.getMillis()>=50);
+            assertTrue(resumed.getFill()>0);
+
+            DfpnSolver other = new DfpnSolver(empty, StoneColor.WHITE, 0, 1);
+            try {
+                other.restore(file);
+                fail();
+            } catch(IOException e) {
+                // expected
+            }
+            assertFalse(other.restore(new File(file.getPath()+".missing")));
+
+            // a solved position is written at the end and not searched again
+            BoardSnapshot won = Analyzer.parse("h8 a1 h9 a2 h10 a14", 15);
+            DfpnSolver    win = new DfpnSolver(won, StoneColor.BLACK, 1, 1);
+            win.setCheckpoint(file, 60000);
+            assertEquals(DfpnSolver.WIN, win.solve(10000));
+            DfpnSolver again = new DfpnSolver(won, StoneColor.BLACK, 1, 1);
+            assertTrue(again.restore(file));
+            assertEquals(DfpnSolver.WIN, again.solve(10000));
+            assertEquals(win.getNodes(), again.getNodes());
+            assertEquals(win.getBestMove(), again.getBestMove());
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link Heatmap}.
+ */
+public class HeatmapTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+    Heatmap   heatmap   = new Heatmap(new TranspositionTable(16), 2000, 100);
+
+
+    @Override
+    protected void tearDown() {
+
+        heatmap.shutdown();
+    }
+
+
+    private Heatmap.Frame await(BoardSnapshot position, int depth) throws InterruptedException {
+
+        long end = System.currentTimeMillis()+3000;
+        while(System.currentTimeMillis()<end) {
+            Heatmap.Frame frame = heatmap.getFrame();
+            if(frame != null && frame.getHash() == position.getHash() && frame.getDepth()>=depth) return frame;
+            Thread.sleep(10);
+        }
+        return null;
+    }
+
+
+    public void testDeepens() throws InterruptedException {
+
+        for(int x = 6; x<8; x++) {
+            gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+            gameBoard.addStone(gameBoard.cell(x, 8), StoneColor.WHITE);
+        }
+        BoardSnapshot position = gameBoard.snapshot();
+        assertNull(heatmap.getFrame());
+        heatmap.start(position, StoneColor.BLACK);
+
+        Heatmap.Frame first = await(position, 1);
+        assertNotNull(first);
+        Heatmap.Frame second = await(position, 2);
+        assertNotNull(second);
+        // the first frame may already be deeper if the test thread was slow to look
+        assertTrue(second.getDepth()>=2 && second.getDepth()>=first.getDepth());
+        assertEquals(StoneColor.BLACK, second.getColor());
+
+        boolean hot = false;
+        for(int cell = 0; cell<gameBoard.getSize()*gameBoard.getSize(); cell++) {
+            float heat = second.getHeat(cell);
+            if(gameBoard.getColor(cell) != StoneColor.EMPTY) assertEquals(-1f, heat);
+            assertTrue(heat == -1 || heat>=0 && heat<=1);
+            hot |= heat == 1;
+        }
+        assertTrue(hot);
+        assertEquals(1f, second.getHeat(second.getBestMove()));
+    }
+
+
+    public void testNewPosition() throws InterruptedException {
+
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        heatmap.start(gameBoard.snapshot(), StoneColor.WHITE);
+
+        // black has four in a row, white must block at once
+        for(int x = 4; x<7; x++) gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        BoardSnapshot position = gameBoard.snapshot();
+        heatmap.start(position, StoneColor.WHITE);
+
+        Heatmap.Frame frame = await(position, 1);
+        assertNotNull(frame);
+        assertEquals(gameBoard.cell(8, 7), frame.getBestMove());
+        for(int cell = 0; cell<gameBoard.getSize()*gameBoard.getSize(); cell++) {
+            if(cell != frame.getBestMove()) assertEquals(Search.NO_SCORE, frame.getScore(cell));
+        }
+    }
+
+
+    public void testWinBeforeBlock() throws InterruptedException {
+
+        for(int x = 4; x<8; x++) {
+            gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+            gameBoard.addStone(gameBoard.cell(x, 10), StoneColor.WHITE);
+        }
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(3, 10), StoneColor.BLACK);
+        BoardSnapshot position = gameBoard.snapshot();
+        heatmap.start(position, StoneColor.BLACK);
+
+        // both have a four, black wins at once and does not have to block
+        Heatmap.Frame frame = await(position, 1);
+        assertNotNull(frame);
+        assertEquals(gameBoard.cell(8, 7), frame.getBestMove());
+        assertEquals(Search.WIN-1, frame.getScore(gameBoard.cell(8, 7)));
+        assertEquals(Search.NO_SCORE, frame.getScore(gameBoard.cell(8, 10)));
+    }
+
+}
@@ -0,0 +1,66 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link LineEvaluator}.
+ */
+public class LineEvaluatorTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+
+
+    public void testEmptyBoard() {
+
+        assertEquals(0, new LineEvaluator(gameBoard).evaluate(StoneColor.BLACK));
+    }
+
+
+    public void testSymmetric() {
+
+        LineEvaluator evaluator = new LineEvaluator(gameBoard);
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        int black = evaluator.evaluate(StoneColor.BLACK);
+        assertTrue(black>0);
+        assertEquals(-black, evaluator.evaluate(StoneColor.WHITE));
+
+        // the same stone of the other color in the same place cancels out
+        gameBoard.undo();
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.WHITE);
+        assertEquals(-black, evaluator.evaluate(StoneColor.BLACK));
+    }
+
+
+    public void testOpenBeatsClosed() {
+
+        LineEvaluator evaluator = new LineEvaluator(gameBoard);
+        for(int x = 5; x<8; x++) gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+        int open = evaluator.evaluate(StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(4, 7), StoneColor.WHITE);
+        assertTrue(evaluator.evaluate(StoneColor.BLACK)<open);
+    }
+
+
+    public void testIncremental() {
+
+        Random        random    = new Random(5);
+        LineEvaluator evaluator = new LineEvaluator(gameBoard);
+        byte          color     = StoneColor.BLACK;
+        for(int i = 0; i<150; i++) {
+            int cell = random.nextInt(225);
+            if(!gameBoard.checkValid(cell)) continue;
+            gameBoard.addStone(cell, color);
+            color = StoneColor.opponent(color);
+            if(i%3 == 0) gameBoard.undo();
+            assertEquals(evaluator.recompute(), evaluator.evaluate(StoneColor.BLACK));
+        }
+        // a new evaluator reads the stones that are already there
+        assertEquals(evaluator.evaluate(StoneColor.BLACK), new LineEvaluator(gameBoard).evaluate(StoneColor.BLACK));
+    }
+
+}
@@ -0,0 +1,104 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link MonteCarloSearch}.
+ */
+public class MonteCarloSearchTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+
+
+    private void line(int fromX, int toX, int y, byte color) {
+
+        for(int x = fromX; x<=toX; x++) gameBoard.addStone(gameBoard.cell(x, y), color);
+    }
+
+
+    public void testWinsWithFour() {
+
+        line(4, 7, 7, StoneColor.BLACK);
+        line(4, 6, 9, StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+
+        MonteCarloSearch search = new MonteCarloSearch(gameBoard.snapshot(), StoneColor.BLACK, 2, 100000);
+        SearchResult     result = search.search(200);
+        search.shutdown();
+
+        assertEquals(gameBoard.cell(8, 7), result.getMove());
+        assertEquals(1000, result.getScore());
+    }
+
+
+    public void testBlocksFour() {
+
+        line(4, 7, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(5, 9), StoneColor.WHITE);
+
+        MonteCarloSearch search = new MonteCarloSearch(gameBoard.snapshot(), StoneColor.WHITE, 2, 100000);
+        SearchResult     result = search.search(200);
+        search.shutdown();
+
+        assertEquals(gameBoard.cell(8, 7), result.getMove());
+    }
+
+
+    public void testTreeReuse() {
+
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(8, 8), StoneColor.WHITE);
+
+        MonteCarloSearch search = new MonteCarloSearch(gameBoard.snapshot(), StoneColor.BLACK, 2, 200000);
+        SearchResult     result = search.search(300);
+        assertTrue(result.getNodes()>0);
+        assertTrue(search.getNodes()>1);
+        assertTrue(search.report(result).contains("playouts/s"));
+
+        search.advance(result.getMove());
+        assertTrue(search.getRootVisits()>0);
+        SearchResult next = search.search(100);
+        search.shutdown();
+        assertTrue(gameBoard.checkValid(next.getMove()));
+        assertTrue(next.getMove() != result.getMove());
+    }
+
+
+    public void testAdvanceFreesNodes() {
+
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(8, 8), StoneColor.WHITE);
+
+        // the pool is full after every search, the subtree of the move is kept and the rest freed
+        MonteCarloSearch search = new MonteCarloSearch(gameBoard.snapshot(), StoneColor.BLACK, 2, 3000);
+        byte             color  = StoneColor.BLACK;
+        for(int i = 0; i<6; i++) {
+            SearchResult result = search.search(100);
+            assertTrue(gameBoard.checkValid(result.getMove()));
+            int nodes = search.getNodes();
+            search.advance(result.getMove());
+            gameBoard.addStone(result.getMove(), color);
+            color = StoneColor.opponent(color);
+            assertTrue(search.getRootVisits()>0);
+            assertTrue(search.getNodes()<nodes);
+        }
+        search.shutdown();
+    }
+
+
+    public void testSmallPool() {
+
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        MonteCarloSearch search = new MonteCarloSearch(gameBoard.snapshot(), StoneColor.WHITE, 1, 100);
+        SearchResult     result = search.search(100);
+        search.shutdown();
+
+        assertTrue(search.getNodes()<=100);
+        assertTrue(gameBoard.checkValid(result.getMove()));
+    }
+
+}
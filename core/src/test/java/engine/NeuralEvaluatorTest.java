@@ -0,0 +1,127 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for {@link NeuralEvaluator}.
+ */
+public class NeuralEvaluatorTest extends TestCase
+{
+
+    NeuralEvaluator.Network network   = NeuralEvaluator.Network.random(15, 32, 8, 3);
+    GameBoard               gameBoard = new GameBoard();
+
+
+    public void testIncremental() {
+
+        Random          random    = new Random(5);
+        NeuralEvaluator evaluator = new NeuralEvaluator(gameBoard, network);
+        NeuralEvaluator fresh     = new NeuralEvaluator(new GameBoard(), network);
+        byte            color     = StoneColor.BLACK;
+        for(int i = 0; i<150; i++) {
+            int cell = random.nextInt(225);
+            if(!gameBoard.checkValid(cell)) continue;
+            gameBoard.addStone(cell, color);
+            color = StoneColor.opponent(color);
+            if(i%3 == 0) gameBoard.undo();
+            short[] black = evaluator.getAccumulator(StoneColor.BLACK).clone();
+            short[] white = evaluator.getAccumulator(StoneColor.WHITE).clone();
+            int     score = evaluator.evaluate(color);
+            evaluator.refresh();
+            assertTrue(Arrays.equals(black, evaluator.getAccumulator(StoneColor.BLACK)));
+            assertTrue(Arrays.equals(white, evaluator.getAccumulator(StoneColor.WHITE)));
+            assertEquals(score, evaluator.evaluate(color));
+        }
+        while(gameBoard.undo()) {
+            // back to the empty board
+        }
+        assertTrue(Arrays.equals(fresh.getAccumulator(StoneColor.BLACK), evaluator.getAccumulator(StoneColor.BLACK)));
+        assertEquals(fresh.evaluate(StoneColor.BLACK), evaluator.evaluate(StoneColor.BLACK));
+    }
+
+
+    public void testPerspective() {
+
+        // swapping the colors of all stones and of the player to move gives the same score
+        GameBoard       swapped   = new GameBoard();
+        NeuralEvaluator evaluator = new NeuralEvaluator(gameBoard, network);
+        NeuralEvaluator other     = new NeuralEvaluator(swapped, network);
+        Random          random    = new Random(7);
+        byte            color     = StoneColor.BLACK;
+        for(int i = 0; i<40; i++) {
+            int cell = random.nextInt(225);
+            if(!gameBoard.checkValid(cell)) continue;
+            gameBoard.addStone(cell, color);
+            swapped.addStone(cell, StoneColor.opponent(color));
+            color = StoneColor.opponent(color);
+            assertEquals(evaluator.evaluate(color), other.evaluate(StoneColor.opponent(color)));
+        }
+    }
+
+
+    public void testWrongSize() {
+
+        try {
+            new NeuralEvaluator(new GameBoard(9), network);
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    public void testReadWrite() throws IOException {
+
+        File file = File.createTempFile("network", ".bin");
+        try {
+            network.write(file);
+            assertEquals(4*4+2*225*32*2+32*2+8*64+8*4+8+4, file.length());
+            NeuralEvaluator.Network read = NeuralEvaluator.Network.read(file);
+            assertEquals(15, read.getSize());
+
+            NeuralEvaluator evaluator = new NeuralEvaluator(gameBoard, network);
+            NeuralEvaluator copy      = new NeuralEvaluator(gameBoard, read);
+            Random          random    = new Random(9);
+            for(int i = 0; i<30; i++) {
+                int cell = random.nextInt(225);
+                if(!gameBoard.checkValid(cell)) continue;
+                gameBoard.addStone(cell, i%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE);
+                assertEquals(evaluator.evaluate(StoneColor.BLACK), copy.evaluate(StoneColor.BLACK));
+                assertEquals(evaluator.evaluate(StoneColor.WHITE), copy.evaluate(StoneColor.WHITE));
+            }
+
+            // a cut file is no network
+            RandomAccessFile cut = new RandomAccessFile(file, "rw");
+            cut.setLength(file.length()-1);
+            cut.close();
+            try {
+                NeuralEvaluator.Network.read(file);
+                fail();
+            } catch(IOException e) {
+                // expected
+            }
+
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[64]);
+            out.close();
+            try {
+                NeuralEvaluator.Network.read(file);
+                fail();
+            } catch(IOException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.BoardSnapshot;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Tests for {@link OpeningBook}.
+ */
+public class OpeningBookTest extends TestCase
+{
+
+    File file;
+
+
+    @Override
+    protected void setUp() throws IOException {
+
+        file = File.createTempFile("opening", ".book");
+    }
+
+
+    @Override
+    protected void tearDown() {
+
+        file.delete();
+    }
+
+
+    private static BoardSnapshot position(int... xy) {
+
+        GameBoard board = new GameBoard();
+        for(int i = 0; i<xy.length; i += 2) {
+            board.addStone(board.cell(xy[i], xy[i+1]), i/2 == 2 ? StoneColor.WHITE : StoneColor.BLACK);
+        }
+        return board.snapshot();
+    }
+
+
+    public void testProbe() throws IOException {
+
+        BoardSnapshot      position = position(7, 7, 8, 7, 7, 9);
+        OpeningBook.Writer writer   = new OpeningBook.Writer(15);
+        writer.add(position, StoneColor.WHITE, position.cell(9, 9), 10);
+        writer.add(position, StoneColor.WHITE, position.cell(6, 6), 20);
+        writer.write(file);
+        assertEquals(OpeningBook.HEADER_BYTES+2*OpeningBook.ENTRY_BYTES, file.length());
+
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(15, book.getSize());
+        assertEquals(2, book.getEntries());
+        assertEquals(position.cell(6, 6), book.probe(position, StoneColor.WHITE));
+        assertEquals(-1, book.probe(position, StoneColor.BLACK));
+        assertEquals(-1, book.probe(position(7, 7, 8, 7, 7, 10), StoneColor.WHITE));
+        book.close();
+    }
+
+
+    public void testSymmetries() throws IOException {
+
+        OpeningBook.Writer writer = new OpeningBook.Writer(15);
+        BoardSnapshot      first  = position(7, 7, 8, 7, 7, 9);
+        writer.add(first, StoneColor.WHITE, first.cell(9, 10), 0);
+        writer.write(file);
+        OpeningBook book = new OpeningBook(file);
+
+        // x and y swapped
+        BoardSnapshot swapped = position(7, 7, 7, 8, 9, 7);
+        assertEquals(swapped.cell(10, 9), book.probe(swapped, StoneColor.WHITE));
+        // mirrored at the vertical axis
+        BoardSnapshot mirrored = position(7, 7, 6, 7, 7, 9);
+        assertEquals(mirrored.cell(5, 10), book.probe(mirrored, StoneColor.WHITE));
+        // rotated by 180 degrees
+        BoardSnapshot rotated = position(7, 7, 6, 7, 7, 5);
+        assertEquals(rotated.cell(5, 4), book.probe(rotated, StoneColor.WHITE));
+        assertEquals(OpeningBook.key(first, StoneColor.WHITE), OpeningBook.key(rotated, StoneColor.WHITE));
+        book.close();
+    }
+
+
+    public void testManyEntries() throws IOException {
+
+        Random             random    = new Random(7);
+        OpeningBook.Writer writer    = new OpeningBook.Writer(15);
+        BoardSnapshot[]    positions = new BoardSnapshot[20000];
+        for(int i = 0; i<positions.length; i++) {
+            // three different cells
+            int a = random.nextInt(225);
+            int b = (a+1+random.nextInt(224))%225;
+            int c = a;
+            while(c == a || c == b) c = random.nextInt(225);
+            positions[i] = position(a/15, a%15, b/15, b%15, c/15, c%15);
+            int move = 0;
+            while(positions[i].getColor(move) != StoneColor.EMPTY) move++;
+            writer.add(positions[i], StoneColor.WHITE, move, i);
+        }
+        writer.write(file);
+
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(positions.length, book.getEntries());
+        for(BoardSnapshot position : positions) {
+            int move = book.probe(position, StoneColor.WHITE);
+            assertTrue(move>=0);
+            assertEquals(StoneColor.EMPTY, position.getColor(move));
+        }
+        book.close();
+    }
+
+
+    public void testNoBook() throws IOException {
+
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[20]);
+        out.close();
+        try {
+            new OpeningBook(file);
+            fail();
+        } catch(IOException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests for {@link ParallelSearch}.
+ */
+public class ParallelSearchTest extends TestCase
+{
+
+    public void testFindsWinWithThreads() {
+
+        GameBoard gameBoard = new GameBoard();
+        for(int x = 5; x<8; x++) gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(0, 0), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(14, 14), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(0, 14), StoneColor.WHITE);
+
+        ParallelSearch search = new ParallelSearch(3, new TranspositionTable(4));
+        SearchResult   result = search.search(gameBoard.snapshot(), StoneColor.BLACK, 5000, 5);
+        search.shutdown();
+
+        assertTrue(result.isMate());
+        assertTrue(result.getMove() == gameBoard.cell(4, 7) || result.getMove() == gameBoard.cell(8, 7));
+        assertTrue(result.getNodes()>0);
+    }
+
+
+    public void testTimeBudget() {
+
+        GameBoard gameBoard = new GameBoard();
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 8), StoneColor.WHITE);
+
+        ParallelSearch search = new ParallelSearch(2, new TranspositionTable(4));
+        long           start  = System.currentTimeMillis();
+        SearchResult   result = search.search(gameBoard.snapshot(), StoneColor.BLACK, 200);
+        long           time   = System.currentTimeMillis()-start;
+        search.shutdown();
+
+        assertTrue("took "+time+"ms", time<500);
+        assertTrue(gameBoard.checkValid(result.getMove()));
+    }
+
+
+    public void testSkip() {
+
+        for(int depth = 1; depth<=Search.MAX_DEPTH; depth++) assertFalse(ParallelSearch.skip(0, depth));
+        // the first helpers skip the odd and the even depths
+        assertTrue(ParallelSearch.skip(1, 3));
+        assertFalse(ParallelSearch.skip(1, 4));
+        assertFalse(ParallelSearch.skip(2, 3));
+        assertTrue(ParallelSearch.skip(2, 4));
+
+        // the helpers search in different patterns
+        Set<String> patterns = new HashSet<String>();
+        for(int thread = 1; thread<=20; thread++) {
+            StringBuilder pattern = new StringBuilder();
+            for(int depth = 1; depth<=16; depth++) pattern.append(ParallelSearch.skip(thread, depth) ? '-' : 'x');
+            patterns.add(pattern.toString());
+        }
+        assertEquals(20, patterns.size());
+    }
+
+
+    public void testMaxDepth() {
+
+        GameBoard gameBoard = new GameBoard();
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 8), StoneColor.WHITE);
+
+        // helpers skip depths but never the last one, so the result is of the maximal depth
+        ParallelSearch search = new ParallelSearch(4, new TranspositionTable(4));
+        SearchResult   result = search.search(gameBoard.snapshot(), StoneColor.BLACK, 60000, 3);
+        search.shutdown();
+
+        assertEquals(3, result.getDepth());
+        assertTrue(gameBoard.checkValid(result.getMove()));
+    }
+
+
+    public void testNoThreads() {
+
+        try {
+            new ParallelSearch(0, new TranspositionTable(1));
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
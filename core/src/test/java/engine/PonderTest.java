@@ -0,0 +1,86 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link Ponder}.
+ */
+public class PonderTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+    Ponder    ponder    = new Ponder(new TranspositionTable(16), 50);
+
+
+    @Override
+    protected void setUp() {
+
+        // black has just made a four, white can only block it
+        for(int x = 4; x<8; x++) gameBoard.addStone(gameBoard.cell(x, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(6, 6), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(5, 8), StoneColor.WHITE);
+    }
+
+
+    @Override
+    protected void tearDown() {
+
+        ponder.shutdown();
+    }
+
+
+    public void testPredictedMove() throws InterruptedException {
+
+        ponder.start(gameBoard.snapshot(), StoneColor.BLACK);
+        assertTrue(ponder.isPondering());
+        Thread.sleep(500);
+
+        gameBoard.addStone(gameBoard.cell(8, 7), StoneColor.WHITE);
+        long         start  = System.currentTimeMillis();
+        SearchResult result = ponder.hit(gameBoard.snapshot(), 300);
+        long         time   = System.currentTimeMillis()-start;
+
+        assertNotNull(result);
+        assertTrue("took "+time+"ms", time<600);
+        assertTrue(gameBoard.checkValid(result.getMove()));
+        assertTrue(result.getDepth()>=1);
+        assertFalse(ponder.isPondering());
+    }
+
+
+    public void testOtherMove() throws InterruptedException {
+
+        ponder.start(gameBoard.snapshot(), StoneColor.BLACK);
+        Thread.sleep(500);
+
+        gameBoard.addStone(gameBoard.cell(2, 7), StoneColor.WHITE);
+        assertNull(ponder.hit(gameBoard.snapshot(), 300));
+        assertFalse(ponder.isPondering());
+    }
+
+
+    public void testCancel() {
+
+        ponder.start(gameBoard.snapshot(), StoneColor.BLACK);
+        ponder.cancel();
+        assertFalse(ponder.isPondering());
+
+        gameBoard.addStone(gameBoard.cell(8, 7), StoneColor.WHITE);
+        assertNull(ponder.hit(gameBoard.snapshot(), 300));
+    }
+
+
+    public void testRestart() throws InterruptedException {
+
+        ponder.start(gameBoard.snapshot(), StoneColor.BLACK);
+        ponder.start(gameBoard.snapshot(), StoneColor.BLACK);
+        Thread.sleep(500);
+
+        gameBoard.addStone(gameBoard.cell(8, 7), StoneColor.WHITE);
+        assertNotNull(ponder.hit(gameBoard.snapshot(), 200));
+    }
+
+}
@@ -0,0 +1,159 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.RuleEnum;
+import objects.StoneColor;
+import objects.ThreatIndex;
+
+/**
+ * Tests for {@link Search}.
+ */
+public class SearchTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+
+
+    private void line(int fromX, int toX, int y, byte color) {
+
+        for(int x = fromX; x<=toX; x++) gameBoard.addStone(gameBoard.cell(x, y), color);
+    }
+
+
+    public void testEmptyBoard() {
+
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 100, 1);
+        assertEquals(gameBoard.cell(7, 7), result.getMove());
+    }
+
+
+    public void testWinsWithFour() {
+
+        line(4, 7, 7, StoneColor.BLACK);
+        line(4, 6, 9, StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 1000);
+        assertEquals(gameBoard.cell(8, 7), result.getMove());
+        assertTrue(result.isMate());
+        assertTrue(result.getScore()>0);
+    }
+
+
+    public void testWinsBeforeBlocking() {
+
+        line(4, 7, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        line(4, 7, 10, StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(3, 10), StoneColor.BLACK);
+
+        // both have a four, the player to move wins instead of blocking
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 1000);
+        assertEquals(gameBoard.cell(8, 7), result.getMove());
+        assertEquals(Search.WIN-1, result.getScore());
+    }
+
+
+    public void testForbiddenBlock() {
+
+        gameBoard = new GameBoard(GameBoard.DEFAULT_SIZE, RuleEnum.RENJU);
+        line(3, 6, 7, StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(2, 7), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(0, 0), StoneColor.WHITE);
+        // blocking at 7,7 would make two open threes for black
+        gameBoard.addStone(gameBoard.cell(7, 8), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 9), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(8, 6), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(9, 5), StoneColor.BLACK);
+        assertTrue(new ThreatIndex(gameBoard).isForbidden(gameBoard.cell(7, 7)));
+
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 1000);
+        assertTrue(gameBoard.checkValid(result.getMove()));
+        assertEquals(-(Search.WIN-2), result.getScore());
+    }
+
+
+    public void testBlocksFour() {
+
+        line(4, 7, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(5, 9), StoneColor.WHITE);
+
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.WHITE, 1000, 3);
+        assertEquals(gameBoard.cell(8, 7), result.getMove());
+    }
+
+
+    public void testFindsOpenFour() {
+
+        line(5, 7, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(0, 0), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(14, 14), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(0, 14), StoneColor.WHITE);
+
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 5000, 5);
+        assertTrue(result.isMate());
+        assertTrue(result.getMove() == gameBoard.cell(4, 7) || result.getMove() == gameBoard.cell(8, 7));
+    }
+
+
+    public void testTimeBudget() {
+
+        line(6, 7, 7, StoneColor.BLACK);
+        line(6, 7, 8, StoneColor.WHITE);
+
+        long         start  = System.currentTimeMillis();
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 200);
+        long         time   = System.currentTimeMillis()-start;
+
+        assertTrue("took "+time+"ms", time<400);
+        assertTrue(gameBoard.checkValid(result.getMove()));
+        assertTrue(result.getDepth()>=1);
+        assertTrue(result.getNodes()>0);
+    }
+
+
+    public void testCpuShare() {
+
+        line(6, 7, 7, StoneColor.BLACK);
+        line(6, 7, 8, StoneColor.WHITE);
+
+        SearchResult full = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 300);
+        Search       slow = new Search(gameBoard.snapshot());
+        slow.setCpuShare(20);
+        SearchResult throttled = slow.search(StoneColor.BLACK, 300);
+        assertTrue(throttled.getNodes()+" of "+full.getNodes(), throttled.getNodes()<full.getNodes()/2);
+        assertTrue(gameBoard.checkValid(throttled.getMove()));
+
+        try {
+            slow.setCpuShare(0);
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+
+    public void testScoreMoves() {
+
+        line(6, 7, 7, StoneColor.BLACK);
+        line(6, 7, 8, StoneColor.WHITE);
+
+        int[]        scores = new Search(gameBoard.snapshot()).scoreMoves(StoneColor.BLACK, 5000, 2);
+        SearchResult result = new Search(gameBoard.snapshot()).search(StoneColor.BLACK, 5000, 2);
+        int          best   = Search.NO_SCORE;
+        for(int cell = 0; cell<scores.length; cell++) {
+            if(gameBoard.getColor(cell) != StoneColor.EMPTY) assertEquals(Search.NO_SCORE, scores[cell]);
+            best = Math.max(best, scores[cell]);
+        }
+        assertEquals(result.getScore(), best);
+        assertEquals(best, scores[result.getMove()]);
+
+        Search stopped = new Search(gameBoard.snapshot());
+        stopped.stop();
+        assertNull(stopped.scoreMoves(StoneColor.BLACK, 5000, 2));
+    }
+
+}
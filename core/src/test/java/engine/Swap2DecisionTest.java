@@ -0,0 +1,110 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.BoardSnapshot;
+import objects.StoneColor;
+import objects.Swap2Enum;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests for {@link Swap2Decision}.
+ */
+public class Swap2DecisionTest extends TestCase
+{
+
+    private Swap2Decision decision;
+
+
+    @Override
+    protected void setUp() {
+
+        decision = new Swap2Decision(2);
+    }
+
+
+    @Override
+    protected void tearDown() {
+
+        decision.shutdown();
+    }
+
+
+    public void testTakesBlackWhenBlackIsAhead() {
+
+        // two black stones in a row, the white one far away
+        Swap2Decision.Choice choice = decision.decide(Analyzer.parse("h8 a1 h9", 15), 500);
+        assertEquals(Swap2Enum.CHOICE_BLACK, choice.getChoice());
+        assertEquals(0, choice.getMoves().length);
+        assertTrue(choice.getScore(Swap2Enum.CHOICE_BLACK)>=Swap2Decision.BALANCED);
+        assertEquals(-choice.getScore(Swap2Enum.CHOICE_BLACK), choice.getScore(Swap2Enum.CHOICE_WHITE));
+        assertTrue(choice.getConfidence()>0 && choice.getConfidence()<=1);
+    }
+
+
+    public void testDecideWithinBudget() {
+
+        BoardSnapshot        position = Analyzer.parse("h8 i9 h9", 15);
+        long                 start    = System.nanoTime();
+        Swap2Decision.Choice choice   = decision.decide(position, 400);
+        long                 millis   = (System.nanoTime()-start)/1000000;
+        assertTrue("took "+millis+" ms", millis<1000);
+
+        int[] moves = choice.getMoves();
+        switch(choice.getChoice()) {
+            case CHOICE_BLACK:
+                assertEquals(0, moves.length);
+                break;
+            case CHOICE_WHITE:
+                assertEquals(1, moves.length);
+                assertEquals(StoneColor.EMPTY, position.getColor(moves[0]));
+                break;
+            case PLAYER_PASS:
+                assertEquals(2, moves.length);
+                assertTrue(moves[0] != moves[1]);
+                assertEquals(StoneColor.EMPTY, position.getColor(moves[0]));
+                assertEquals(StoneColor.EMPTY, position.getColor(moves[1]));
+                assertTrue(-choice.getScore(Swap2Enum.PLAYER_PASS)<Math.abs(choice.getScore(Swap2Enum.CHOICE_WHITE)));
+                break;
+            default:
+                fail(choice.toString());
+        }
+    }
+
+
+    public void testBookMove() throws IOException {
+
+        // the position of the swap2 decision is in the book, white to move
+        BoardSnapshot      position = Analyzer.parse("h8 i9 h9", 15);
+        int                move     = position.cell(7, 9);
+        File               file     = File.createTempFile("swap2", ".book");
+        OpeningBook.Writer writer   = new OpeningBook.Writer(15);
+        writer.add(position, StoneColor.WHITE, move, 300);
+        writer.write(file);
+        OpeningBook book = new OpeningBook(file);
+        try {
+            Swap2Decision.Choice choice = decision.decide(position, 300, book);
+            assertEquals(Swap2Enum.CHOICE_WHITE, choice.getChoice());
+            assertEquals(move, choice.getMoves()[0]);
+            assertEquals(300, choice.getScore(Swap2Enum.CHOICE_WHITE));
+
+            // another position is searched
+            Swap2Decision.Choice other = decision.decide(Analyzer.parse("h8 a1 h9", 15), 300, book);
+            assertEquals(Swap2Enum.CHOICE_BLACK, other.getChoice());
+        } finally {
+            book.close();
+            file.delete();
+        }
+    }
+
+
+    public void testChooseAfterPass() {
+
+        // black has an open three after the pass, white has to block it
+        Swap2Decision.Choice choice = decision.choose(Analyzer.parse("h8 a1 h9 a2 h10", 15), 500);
+        assertEquals(Swap2Enum.CHOICE_BLACK, choice.getChoice());
+        assertEquals(-Search.WIN, choice.getScore(Swap2Enum.PLAYER_PASS));
+    }
+
+}
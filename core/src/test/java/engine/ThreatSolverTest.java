@@ -0,0 +1,109 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link ThreatSolver}.
+ */
+public class ThreatSolverTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+
+
+    private void stones(byte color, int... xy) {
+
+        for(int i = 0; i<xy.length; i += 2) gameBoard.addStone(gameBoard.cell(xy[i], xy[i+1]), color);
+    }
+
+
+    /**
+     * Plays a sequence for the attacker and checks that every defender move was forced and the last move wins.
+     */
+    private void assertWins(int[] sequence, byte attacker) {
+
+        assertNotNull(sequence);
+        assertEquals(1, sequence.length%2);
+        byte color = attacker;
+        for(int i = 0; i<sequence.length; i++) {
+            assertTrue(gameBoard.checkValid(sequence[i]));
+            gameBoard.addStone(sequence[i], color);
+            assertEquals(i == sequence.length-1, gameBoard.checkWin(sequence[i]));
+            color = StoneColor.opponent(color);
+        }
+    }
+
+
+    public void testDoubleFour() {
+
+        stones(StoneColor.BLACK, 3, 7, 4, 7, 5, 7, 6, 4, 6, 5, 6, 6);
+        stones(StoneColor.WHITE, 2, 7, 6, 3, 0, 0, 14, 14, 0, 14, 14, 0);
+
+        int[] vcf = new ThreatSolver(gameBoard.snapshot()).solveVcf(StoneColor.BLACK, 4, 1000);
+        assertEquals(3, vcf.length);
+        assertEquals(gameBoard.cell(6, 7), vcf[0]);
+        assertWins(vcf, StoneColor.BLACK);
+    }
+
+
+    public void testLongVcf() {
+
+        // every four is blocked on one side, the second one meets a four on another line
+        stones(StoneColor.BLACK, 2, 2, 3, 3, 4, 4, 3, 5, 4, 5, 7, 4, 8, 3, 9, 2);
+        stones(StoneColor.WHITE, 1, 1, 2, 5, 10, 1, 0, 14, 14, 14, 14, 0, 13, 13, 12, 14);
+
+        ThreatSolver solver = new ThreatSolver(gameBoard.snapshot());
+        int[]        vcf    = solver.solveVcf(StoneColor.BLACK, 8, 1000);
+        assertTrue(vcf.length>=5);
+        assertTrue(solver.getNodes()>0);
+        assertWins(vcf, StoneColor.BLACK);
+    }
+
+
+    public void testNoVcfWithoutFours() {
+
+        stones(StoneColor.BLACK, 5, 7, 6, 7, 7, 5, 7, 6);
+        stones(StoneColor.WHITE, 0, 0, 14, 14, 0, 14, 14, 0);
+
+        assertNull(new ThreatSolver(gameBoard.snapshot()).solveVcf(StoneColor.BLACK, 8, 1000));
+    }
+
+
+    public void testVctDoubleThree() {
+
+        stones(StoneColor.BLACK, 5, 7, 6, 7, 7, 5, 7, 6);
+        stones(StoneColor.WHITE, 0, 0, 14, 14, 0, 14, 14, 0);
+
+        int[] vct = new ThreatSolver(gameBoard.snapshot()).solveVct(StoneColor.BLACK, 4, 5000);
+        assertWins(vct, StoneColor.BLACK);
+    }
+
+
+    public void testDefenderFourFirst() {
+
+        // white can make five at once, so the four of black comes too late
+        stones(StoneColor.BLACK, 3, 7, 4, 7, 5, 7, 6, 4, 6, 5, 6, 6);
+        stones(StoneColor.WHITE, 2, 7, 6, 3, 10, 1, 10, 2, 10, 3, 10, 4);
+
+        assertNull(new ThreatSolver(gameBoard.snapshot()).solveVcf(StoneColor.BLACK, 4, 1000));
+    }
+
+
+    public void testSearchUsesVcf() {
+
+        stones(StoneColor.BLACK, 3, 7, 4, 7, 5, 7, 6, 4, 6, 5, 6, 6);
+        stones(StoneColor.WHITE, 2, 7, 6, 3, 0, 0, 14, 14, 0, 14, 14, 0);
+        long hash  = gameBoard.getHash();
+        int  moves = gameBoard.getMoveCount();
+
+        Search search = new Search(gameBoard.snapshot());
+        SearchResult result = search.search(StoneColor.BLACK, 1000);
+        assertEquals(gameBoard.cell(6, 7), result.getMove());
+        assertTrue(result.isMate());
+        assertEquals(hash, search.getBoard().getHash());
+        assertEquals(moves, search.getBoard().getMoveCount());
+    }
+
+}
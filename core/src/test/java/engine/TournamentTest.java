@@ -0,0 +1,94 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.RuleEnum;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link Tournament}.
+ */
+public class TournamentTest extends TestCase
+{
+
+    public void testLlr() {
+
+        assertEquals(0.0, Tournament.llr(0, 0, 0, 0, 5));
+        assertTrue(Tournament.llr(60, 20, 20, 0, 5)>0);
+        assertTrue(Tournament.llr(20, 20, 60, 0, 5)<0);
+        // more games with the same score are more evidence
+        assertTrue(Tournament.llr(600, 200, 200, 0, 5)>Tournament.llr(60, 20, 20, 0, 5));
+    }
+
+
+    public void testSearchBeatsRandom() throws IOException {
+
+        Tournament tournament = new Tournament(Tournament.engine("search"), 20, Tournament.engine("random"), 20,
+                                               RuleEnum.EXACT_FIVE, 15, 2, 1);
+        tournament.setSprt(0, 50, 0.05, 0.05);
+        StringWriter records  = new StringWriter();
+        int          decision = tournament.run(40, records);
+
+        int games = tournament.getWins()+tournament.getDraws()+tournament.getLosses();
+        assertEquals(Tournament.H1, decision);
+        assertTrue(games<40);
+        assertEquals(0, tournament.getLosses());
+        assertTrue(tournament.getElo()>100);
+
+        String[] lines = records.toString().split("\n");
+        assertTrue(lines.length>=games);
+        for(String line : lines) assertTrue(line, line.matches("[AB] (1-0|0-1|1/2) ([a-o]{2})+"));
+    }
+
+
+    public void testSameOpenings() throws IOException {
+
+        StringWriter first  = new StringWriter();
+        StringWriter second = new StringWriter();
+        new Tournament(Tournament.engine("random"), 1, Tournament.engine("random"), 1, RuleEnum.FREESTYLE, 15, 1, 7)
+                .run(2, first);
+        new Tournament(Tournament.engine("random"), 1, Tournament.engine("random"), 1, RuleEnum.FREESTYLE, 15, 1, 7)
+                .run(2, second);
+        assertEquals(first.toString().substring(6, 12), second.toString().substring(6, 12));
+    }
+
+
+    public void testRecordSize() throws IOException {
+
+        // 26 columns still have a letter each
+        StringWriter records = new StringWriter();
+        new Tournament(Tournament.engine("random"), 1, Tournament.engine("random"), 1, RuleEnum.FREESTYLE,
+                       Tournament.MAX_RECORD_SIZE, 1, 3).run(2, records);
+        for(String line : records.toString().split("\n")) assertTrue(line, line.substring(6).matches("([a-z]{2})+"));
+
+        Tournament large = new Tournament(Tournament.engine("random"), 1, Tournament.engine("random"), 1,
+                                          RuleEnum.FREESTYLE, Tournament.MAX_RECORD_SIZE+1, 1, 3);
+        try {
+            large.run(2, new StringWriter());
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    public void testInvalidSprt() {
+
+        Tournament tournament = new Tournament(Tournament.engine("random"), 1, Tournament.engine("random"), 1,
+                                               RuleEnum.EXACT_FIVE, 15, 1, 0);
+        try {
+            tournament.setSprt(5, 0, 0.05, 0.05);
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Tournament.engine("none");
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
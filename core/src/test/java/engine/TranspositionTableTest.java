@@ -0,0 +1,134 @@
+package engine;
+
+import junit.framework.TestCase;
+import objects.GameBoard;
+import objects.StoneColor;
+
+/**
+ * Tests for {@link TranspositionTable}.
+ */
+public class TranspositionTableTest extends TestCase
+{
+
+    TranspositionTable table = new TranspositionTable(1);
+
+
+    public void testSize() {
+
+        assertEquals(1 << 16, table.getEntries());
+        assertEquals(1 << 17, new TranspositionTable(3).getEntries());
+        try {
+            new TranspositionTable(0);
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    public void testStoreAndProbe() {
+
+        long key = 0x123456789ABCDEFL;
+        assertEquals(0, table.probe(key));
+
+        table.store(key, 112, -4711, 7, TranspositionTable.LOWER);
+        long data = table.probe(key);
+        assertEquals(112, TranspositionTable.move(data));
+        assertEquals(-4711, TranspositionTable.score(data));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+
+        table.store(key, -1, Search.WIN-3, 3, TranspositionTable.EXACT);
+        assertEquals(7, TranspositionTable.depth(table.probe(key)));
+        table.store(key, -1, Search.WIN-3, 9, TranspositionTable.EXACT);
+        assertEquals(-1, TranspositionTable.move(table.probe(key)));
+        assertEquals(Search.WIN-3, TranspositionTable.score(table.probe(key)));
+    }
+
+
+    public void testCollision() {
+
+        TranspositionTable.Counters counters = new TranspositionTable.Counters();
+        long                        key      = 42;
+        long                        other    = key+((long) table.getEntries() << 3);
+        table.store(key, 1, 1, 1, TranspositionTable.EXACT, counters);
+
+        assertEquals(0, table.probe(other, counters));
+        assertEquals(1, counters.getCollisions());
+        table.store(other, 2, 2, 1, TranspositionTable.EXACT, counters);
+        assertEquals(0, table.probe(key, counters));
+        assertEquals(2, TranspositionTable.move(table.probe(other, counters)));
+        assertEquals(3, counters.getProbes());
+        assertEquals(1, counters.getHits());
+        assertEquals(2, counters.getStores());
+
+        // the totals only change when the counters are added
+        assertEquals(0, table.getProbes());
+        table.add(counters);
+        assertEquals(3, table.getProbes());
+        assertEquals(1, table.getHits());
+        assertEquals(2, table.getCollisions());
+        assertEquals(2, table.getStores());
+        assertEquals(0, counters.getProbes());
+
+        table.clear();
+        assertEquals(0, table.probe(other, counters));
+        table.add(counters);
+        assertEquals(1, table.getProbes());
+        assertEquals(0, table.getCollisions());
+    }
+
+
+    public void testConcurrentWritesAreNeverTorn() throws InterruptedException {
+
+        Thread[] threads = new Thread[4];
+        final boolean[] torn = new boolean[1];
+        for(int t = 0; t<threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable()
+            {
+
+                @Override
+                public void run() {
+
+                    TranspositionTable.Counters counters = new TranspositionTable.Counters();
+                    for(int i = 0; i<200000; i++) {
+                        // few keys so the threads write the same entries
+                        long key = (i*31+seed)%64*0x9E3779B97F4A7C15L;
+                        table.store(key, (int) (key >>> 44), (int) key, 1, TranspositionTable.EXACT);
+                        long data = table.probe(key, counters);
+                        if(data != 0 && TranspositionTable.score(data) != (int) key) torn[0] = true;
+                    }
+                    table.add(counters);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertFalse(torn[0]);
+        assertEquals(800000, table.getProbes());
+    }
+
+
+    public void testSearchWithTable() {
+
+        GameBoard gameBoard = new GameBoard();
+        // two open twos meet in a double three, a win the root VCF check can not see
+        for(int i = 5; i<7; i++) {
+            gameBoard.addStone(gameBoard.cell(i, 7), StoneColor.BLACK);
+            gameBoard.addStone(gameBoard.cell(7, i), StoneColor.BLACK);
+        }
+        gameBoard.addStone(gameBoard.cell(0, 0), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(14, 14), StoneColor.WHITE);
+        gameBoard.addStone(gameBoard.cell(0, 14), StoneColor.WHITE);
+
+        SearchResult first  = new Search(gameBoard.snapshot(), table).search(StoneColor.BLACK, 5000, 5);
+        SearchResult second = new Search(gameBoard.snapshot(), table).search(StoneColor.BLACK, 5000, 5);
+
+        assertTrue(first.isMate());
+        assertEquals(first.getScore(), second.getScore());
+        assertTrue(second.getNodes()<first.getNodes());
+        assertTrue(table.getHits()>0);
+    }
+
+}
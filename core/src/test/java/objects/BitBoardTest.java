@@ -0,0 +1,92 @@
+package objects;
+
+import com.badlogic.gdx.graphics.Color;
+import junit.framework.TestCase;
+
+import java.awt.*;
+
+/**
+ * Tests for all {@link BitBoard} methods.
+ */
+public class BitBoardTest extends TestCase
+{
+
+    BitBoard bitBoard = new BitBoard();
+
+    Stone bStone = new Stone(Color.BLACK, new Point(5, 5));
+    Stone wStone = new Stone(Color.WHITE, new Point(6, 5));
+
+
+    public void testAddStone() {
+
+        bitBoard.addStone(bStone);
+        bitBoard.addStone(wStone);
+        assertEquals(bStone, bitBoard.getStone(5, 5));
+        assertEquals(wStone, bitBoard.getStone(6, 5));
+    }
+
+
+    public void testGetStone() {
+
+        assertNull(bitBoard.getStone(5, 5));
+        bitBoard.addStone(bStone);
+        assertNull(bitBoard.getStone(5, 6));
+    }
+
+
+    public void testCheckWinHorizontal() {
+
+        for(int x = 4; x<=8; x++) bitBoard.addStone(new Stone(Color.BLACK, new Point(x, 5)));
+        assertTrue(bitBoard.checkWin(4, 5, Color.BLACK));
+        assertTrue(bitBoard.checkWin(8, 5, Color.BLACK));
+        assertFalse(bitBoard.checkWin(4, 5, Color.WHITE));
+    }
+
+
+    public void testCheckWinVerticalAtEdge() {
+
+        for(int y = 0; y<5; y++) bitBoard.addStone(new Stone(Color.WHITE, new Point(14, y)));
+        assertTrue(bitBoard.checkWin(14, 0, Color.WHITE));
+        assertTrue(bitBoard.hasFive(Color.WHITE));
+        assertFalse(bitBoard.hasFive(Color.BLACK));
+    }
+
+
+    public void testCheckWinDiagonals() {
+
+        for(int i = 0; i<5; i++) {
+            bitBoard.addStone(new Stone(Color.BLACK, new Point(10+i, 10-i)));
+            bitBoard.addStone(new Stone(Color.WHITE, new Point(i, i)));
+        }
+        assertTrue(bitBoard.checkWin(12, 8, Color.BLACK));
+        assertTrue(bitBoard.checkWin(0, 0, Color.WHITE));
+    }
+
+
+    public void testFourIsNoWin() {
+
+        for(int x = 0; x<4; x++) bitBoard.addStone(new Stone(Color.BLACK, new Point(x, 3)));
+        bitBoard.addStone(new Stone(Color.WHITE, new Point(4, 3)));
+        bitBoard.addStone(new Stone(Color.BLACK, new Point(5, 3)));
+        assertFalse(bitBoard.checkWin(3, 3, Color.BLACK));
+        assertFalse(bitBoard.hasFive(Color.BLACK));
+    }
+
+
+    public void testSixIsNoWin() {
+
+        for(int y = 9; y<15; y++) bitBoard.addStone(new Stone(Color.BLACK, new Point(2, y)));
+        assertFalse(bitBoard.checkWin(2, 14, Color.BLACK));
+        assertFalse(bitBoard.checkWin(2, 11, Color.BLACK));
+        assertFalse(bitBoard.hasFive(Color.BLACK));
+    }
+
+
+    public void testLargeBoardAcrossWords() {
+
+        BitBoard large = new BitBoard(100);
+        for(int x = 57; x<62; x++) large.addStone(new Stone(Color.BLACK, new Point(x, 99)));
+        assertTrue(large.checkWin(59, 99, Color.BLACK));
+        assertTrue(large.hasFive(Color.BLACK));
+    }
+}
@@ -0,0 +1,55 @@
+package objects;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BoardSnapshot} and {@link GameBoard#snapshot()}.
+ */
+public class BoardSnapshotTest extends TestCase
+{
+
+    GameBoard gameBoard = new GameBoard();
+    int       first     = gameBoard.cell(7, 7);
+    int       second    = gameBoard.cell(7, 8);
+
+
+    public void testSnapshotIsImmutable() {
+
+        gameBoard.addStone(first, StoneColor.BLACK);
+        BoardSnapshot snapshot = gameBoard.snapshot();
+        long          hash     = gameBoard.getHash();
+
+        gameBoard.addStone(second, StoneColor.WHITE);
+        gameBoard.undo();
+        gameBoard.undo();
+
+        assertEquals(StoneColor.BLACK, snapshot.getColor(first));
+        assertEquals(StoneColor.EMPTY, snapshot.getColor(second));
+        assertEquals(1, snapshot.getMoveCount());
+        assertEquals(first, snapshot.getMove(0));
+        assertEquals(hash, snapshot.getHash());
+        assertEquals(StoneColor.EMPTY, gameBoard.getColor(first));
+    }
+
+
+    public void testSnapshotIsShared() {
+
+        gameBoard.addStone(first, StoneColor.BLACK);
+        assertSame(gameBoard.snapshot(), gameBoard.snapshot());
+        gameBoard.addStone(second, StoneColor.WHITE);
+        assertEquals(2, gameBoard.snapshot().getMoveCount());
+    }
+
+
+    public void testToBoard() {
+
+        for(int x = 3; x<8; x++) gameBoard.addStone(gameBoard.cell(x, 3), StoneColor.WHITE);
+        GameBoard copy = gameBoard.snapshot().toBoard();
+
+        assertEquals(gameBoard.getHash(), copy.getHash());
+        assertEquals(gameBoard.getCounter(), copy.getCounter());
+        assertTrue(copy.checkWin(copy.cell(5, 3)));
+        copy.undo();
+        assertEquals(StoneColor.WHITE, gameBoard.getColor(gameBoard.cell(7, 3)));
+    }
+}
@@ -2,14 +2,11 @@ package objects;
 
 import com.badlogic.gdx.graphics.Color;
 import junit.framework.TestCase;
-import screens.GameScreen;
 
 import java.awt.*;
 
 /**
  * Tests for all {@link GameBoard} methods.
- *
- * {@link GameBoard.checkValid(GameScreen)} cannot be tested as it requires a mouse input.
  */
 public class GameBoardTest extends TestCase
 {
@@ -64,4 +61,155 @@ public class GameBoardTest extends TestCase
         gameBoard.addStone(bStone2);
         assertEquals(bStone2, gameBoard.getStone(5, 5));
     }
-}
\ No newline at end of file
+
+
+    public void testCheckWinBlockedAndAtEdge() {
+
+        gameBoard.addStone(new Stone(Color.WHITE, new Point(3, 0)));
+        for(int x = 4; x<9; x++) gameBoard.addStone(new Stone(Color.BLACK, new Point(x, 0)));
+        for(int y = 10; y<15; y++) gameBoard.addStone(new Stone(Color.WHITE, new Point(14, y)));
+
+        assertTrue(gameBoard.checkWin(8, 0, Color.BLACK));
+        assertTrue(gameBoard.checkWin(14, 12, Color.WHITE));
+        assertFalse(gameBoard.checkWin(3, 0, Color.WHITE));
+    }
+
+
+    public void testGetRunLength() {
+
+        // fill the gap last, both rows are joined
+        gameBoard.addStone(bStone1);
+        gameBoard.addStone(bStone2);
+        gameBoard.addStone(bStone4);
+        gameBoard.addStone(bStone5);
+        assertEquals(2, gameBoard.getRunLength(4, 5, DirectionEnum.RIGHT));
+        gameBoard.addStone(bStone3);
+        assertEquals(5, gameBoard.getRunLength(4, 5, DirectionEnum.LEFT));
+        assertEquals(5, gameBoard.getRunLength(8, 5, DirectionEnum.RIGHT));
+        assertEquals(1, gameBoard.getRunLength(6, 5, DirectionEnum.UP));
+        assertEquals(0, gameBoard.getRunLength(9, 5, DirectionEnum.RIGHT));
+        assertTrue(gameBoard.checkWin(6, 5, DirectionEnum.RIGHT, Color.BLACK));
+        assertFalse(gameBoard.checkWin(6, 5, DirectionEnum.UP, Color.BLACK));
+    }
+
+
+    public void testGetHash() {
+
+        GameBoard other = new GameBoard();
+        assertEquals(0, gameBoard.getHash());
+
+        gameBoard.addStone(bStone1);
+        gameBoard.addStone(wStone1);
+        other.addStone(wStone1);
+        assertFalse(gameBoard.getHash() == other.getHash());
+
+        other.addStone(bStone1);
+        assertEquals(gameBoard.getHash(), other.getHash());
+    }
+
+
+    public void testCheckValid() {
+
+        gameBoard.addStone(bStone2);
+        assertFalse(gameBoard.checkValid(5, 5));
+        assertTrue(gameBoard.checkValid(5, 6));
+        assertFalse(gameBoard.checkValid(-1, 6));
+        assertFalse(gameBoard.checkValid(5, 15));
+    }
+
+
+    public void testGetCounter() {
+
+        assertEquals(15*15, gameBoard.getCounter());
+        gameBoard.addStone(bStone2);
+        assertEquals(15*15-1, gameBoard.getCounter());
+    }
+
+
+    public void testLargeBoard() {
+
+        GameBoard large = new GameBoard(100);
+        for(int i = 0; i<5; i++) large.addStone(new Stone(Color.WHITE, new Point(95+i, 99-i)));
+        assertEquals(100, large.getSize());
+        assertTrue(large.checkWin(99, 95, Color.WHITE));
+        assertEquals(new Stone(Color.WHITE, new Point(97, 97)), large.getStone(97, 97));
+    }
+
+
+    public void testUndoRedo() {
+
+        gameBoard.addStone(bStone1);
+        gameBoard.addStone(bStone2);
+        gameBoard.addStone(bStone4);
+        gameBoard.addStone(bStone5);
+        long hash    = gameBoard.getHash();
+        int  counter = gameBoard.getCounter();
+
+        gameBoard.addStone(bStone3);
+        assertTrue(gameBoard.checkWin(6, 5, Color.BLACK));
+        assertTrue(gameBoard.undo());
+        assertNull(gameBoard.getStone(6, 5));
+        assertEquals(hash, gameBoard.getHash());
+        assertEquals(counter, gameBoard.getCounter());
+        assertEquals(4, gameBoard.getMoveCount());
+        assertEquals(2, gameBoard.getRunLength(5, 5, DirectionEnum.RIGHT));
+        assertEquals(0, gameBoard.getRunLength(6, 5, DirectionEnum.RIGHT));
+        assertFalse(gameBoard.checkWin(4, 5, Color.BLACK));
+
+        assertTrue(gameBoard.redo());
+        assertFalse(gameBoard.redo());
+        assertEquals(bStone3, gameBoard.getStone(6, 5));
+        assertTrue(gameBoard.checkWin(4, 5, Color.BLACK));
+    }
+
+
+    public void testUndoAll() {
+
+        gameBoard.addStone(bStone1);
+        gameBoard.addStone(wStone1);
+        assertTrue(gameBoard.undo());
+        assertTrue(gameBoard.undo());
+        assertFalse(gameBoard.undo());
+        assertEquals(0, gameBoard.getHash());
+        assertEquals(15*15, gameBoard.getCounter());
+
+        // a new stone discards the moves that were taken back
+        gameBoard.addStone(wStone2);
+        assertFalse(gameBoard.redo());
+    }
+
+
+    public void testPrimitiveMoves() {
+
+        int cell = gameBoard.cell(7, 3);
+        assertEquals(7, gameBoard.cellX(cell));
+        assertEquals(3, gameBoard.cellY(cell));
+
+        for(int y = 3; y<8; y++) gameBoard.addStone(gameBoard.cell(7, y), StoneColor.WHITE);
+        assertEquals(StoneColor.WHITE, gameBoard.getColor(cell));
+        assertEquals(StoneColor.EMPTY, gameBoard.getColor(gameBoard.cell(7, 8)));
+        assertEquals(gameBoard.cell(7, 7), gameBoard.getMove(4));
+        assertTrue(gameBoard.checkWin(cell));
+        assertFalse(gameBoard.checkValid(cell));
+        assertEquals(5, gameBoard.getRunLength(cell, GameBoard.VERTICAL));
+        assertEquals(new Stone(Color.WHITE, new Point(7, 3)), gameBoard.getStone(7, 3));
+    }
+
+
+    public void testRules() {
+
+        GameBoard freestyle = new GameBoard(15, RuleEnum.FREESTYLE);
+        GameBoard renju     = new GameBoard(15, RuleEnum.RENJU);
+        for(int y = 0; y<6; y++) {
+            freestyle.addStone(freestyle.cell(1, y), StoneColor.BLACK);
+            renju.addStone(renju.cell(1, y), StoneColor.BLACK);
+            renju.addStone(renju.cell(3, y), StoneColor.WHITE);
+        }
+
+        assertTrue(freestyle.checkWin(freestyle.cell(1, 0)));
+        assertFalse(renju.checkWin(renju.cell(1, 0)));
+        assertTrue(renju.checkWin(renju.cell(3, 0)));
+        assertEquals(RuleEnum.RENJU, renju.snapshot().toBoard().getRule());
+    }
+
+}
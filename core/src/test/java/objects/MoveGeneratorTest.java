@@ -0,0 +1,76 @@
+package objects;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link MoveGenerator}.
+ */
+public class MoveGeneratorTest extends TestCase
+{
+
+    GameBoard     gameBoard = new GameBoard();
+    MoveGenerator near      = new MoveGenerator(gameBoard, 1);
+    MoveGenerator far       = new MoveGenerator(gameBoard, 2);
+
+
+    public void testSingleStone() {
+
+        assertEquals(0, near.getCount());
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+
+        assertEquals(8, near.getCount());
+        assertEquals(24, far.getCount());
+        assertFalse(near.contains(gameBoard.cell(7, 7)));
+        assertTrue(near.contains(gameBoard.cell(8, 8)));
+        assertFalse(near.contains(gameBoard.cell(9, 9)));
+        assertTrue(far.contains(gameBoard.cell(9, 9)));
+    }
+
+
+    public void testCornerAndUndo() {
+
+        gameBoard.addStone(gameBoard.cell(0, 0), StoneColor.BLACK);
+        assertEquals(8, far.getCount());
+
+        gameBoard.addStone(gameBoard.cell(1, 1), StoneColor.WHITE);
+        assertEquals(7, near.getCount());
+        assertFalse(near.contains(gameBoard.cell(1, 1)));
+
+        gameBoard.undo();
+        assertEquals(3, near.getCount());
+        assertTrue(near.contains(gameBoard.cell(1, 1)));
+        gameBoard.undo();
+        assertEquals(0, near.getCount());
+        assertEquals(0, far.getCount());
+    }
+
+
+    public void testCopyTo() {
+
+        gameBoard.addStone(gameBoard.cell(7, 7), StoneColor.BLACK);
+        int[] moves = new int[20];
+        assertEquals(8, near.copyTo(moves, 10));
+        for(int i = 0; i<8; i++) assertTrue(near.contains(moves[10+i]));
+    }
+
+
+    public void testIncrementalMatchesRebuild() {
+
+        Random random = new Random(10);
+        for(int i = 0; i<80; i++) {
+            int cell = random.nextInt(gameBoard.getSize()*gameBoard.getSize());
+            if(gameBoard.checkValid(cell)) gameBoard.addStone(cell, i%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE);
+            if(i%5 == 4) gameBoard.undo();
+        }
+
+        MoveGenerator rebuilt = new MoveGenerator(gameBoard, 2);
+        assertEquals(rebuilt.getCount(), far.getCount());
+        for(int i = 0; i<far.getCount(); i++) {
+            assertTrue(rebuilt.contains(far.get(i)));
+            assertEquals(StoneColor.EMPTY, gameBoard.getColor(far.get(i)));
+        }
+    }
+
+}
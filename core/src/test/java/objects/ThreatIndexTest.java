@@ -0,0 +1,165 @@
+package objects;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link ThreatIndex} and {@link Pattern}.
+ */
+public class ThreatIndexTest extends TestCase
+{
+
+    GameBoard   gameBoard = new GameBoard();
+    ThreatIndex index     = new ThreatIndex(gameBoard);
+
+
+    private void line(int fromX, int toX, int y, byte color) {
+
+        for(int x = fromX; x<=toX; x++) gameBoard.addStone(gameBoard.cell(x, y), color);
+    }
+
+
+    public void testOpenThree() {
+
+        line(5, 7, 7, StoneColor.BLACK);
+
+        assertEquals(Pattern.OPEN_THREE, index.getPattern(gameBoard.cell(6, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertEquals(Pattern.OPEN_FOUR, index.getPattern(gameBoard.cell(4, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertEquals(2, index.getCount(StoneColor.BLACK, Pattern.OPEN_FOUR));
+        assertEquals(0, index.getCount(StoneColor.BLACK, Pattern.FIVE));
+        assertEquals(0, index.getCount(StoneColor.WHITE, Pattern.OPEN_FOUR));
+    }
+
+
+    public void testBlockedFour() {
+
+        gameBoard.addStone(gameBoard.cell(4, 7), StoneColor.WHITE);
+        line(5, 8, 7, StoneColor.BLACK);
+
+        assertEquals(Pattern.FOUR, index.getPattern(gameBoard.cell(5, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertEquals(Pattern.FIVE, index.getPattern(gameBoard.cell(9, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertEquals(1, index.getCount(StoneColor.BLACK, Pattern.FIVE));
+        assertEquals(0, index.getCount(StoneColor.BLACK, Pattern.OPEN_FOUR));
+        assertEquals(Pattern.NONE, index.getPattern(gameBoard.cell(4, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+    }
+
+
+    public void testFourAtEdge() {
+
+        line(0, 3, 0, StoneColor.WHITE);
+
+        assertEquals(Pattern.FOUR, index.getPattern(gameBoard.cell(0, 0), GameBoard.HORIZONTAL, StoneColor.WHITE));
+        assertEquals(1, index.getCount(StoneColor.WHITE, Pattern.FIVE));
+    }
+
+
+    public void testOverline() {
+
+        line(3, 5, 7, StoneColor.BLACK);
+        line(7, 8, 7, StoneColor.BLACK);
+
+        assertEquals(Pattern.OVERLINE, index.getPattern(gameBoard.cell(6, 7), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertEquals(0, index.getCount(StoneColor.BLACK, Pattern.FIVE));
+        assertEquals(Pattern.FIVE, Pattern.of(Pattern.digit(-1)+Pattern.digit(-2)+Pattern.digit(-3)
+                                              +Pattern.digit(1)+Pattern.digit(2), false));
+    }
+
+
+    public void testUndoRestoresCounts() {
+
+        line(5, 7, 7, StoneColor.BLACK);
+        line(5, 7, 8, StoneColor.WHITE);
+        while(gameBoard.undo()) ;
+
+        ThreatIndex fresh = new ThreatIndex(new GameBoard());
+        for(byte pattern = 0; pattern<Pattern.COUNT; pattern++) {
+            assertEquals(fresh.getCount(StoneColor.BLACK, pattern), index.getCount(StoneColor.BLACK, pattern));
+            assertEquals(fresh.getCount(StoneColor.WHITE, pattern), index.getCount(StoneColor.WHITE, pattern));
+        }
+    }
+
+
+    public void testIncrementalMatchesRebuild() {
+
+        Random random = new Random(8);
+        for(int i = 0; i<60; i++) {
+            int cell = random.nextInt(gameBoard.getSize()*gameBoard.getSize());
+            if(gameBoard.checkValid(cell)) gameBoard.addStone(cell, i%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE);
+            if(i%7 == 6) gameBoard.undo();
+        }
+
+        ThreatIndex rebuilt = new ThreatIndex(gameBoard);
+        for(byte color = StoneColor.BLACK; color<=StoneColor.WHITE; color++) {
+            for(byte pattern = 0; pattern<Pattern.COUNT; pattern++) {
+                assertEquals(rebuilt.getCount(color, pattern), index.getCount(color, pattern));
+            }
+            for(int cell = 0; cell<gameBoard.getSize()*gameBoard.getSize(); cell++) {
+                for(int axis = 0; axis<4; axis++) {
+                    assertEquals(rebuilt.getPattern(cell, axis, color), index.getPattern(cell, axis, color));
+                }
+            }
+        }
+    }
+
+
+    public void testRenjuDoubleThree() {
+
+        gameBoard = new GameBoard(15, RuleEnum.RENJU);
+        index = new ThreatIndex(gameBoard);
+        int center = gameBoard.cell(7, 7);
+
+        line(5, 6, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 5), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 6), StoneColor.BLACK);
+        assertTrue(index.isForbidden(center));
+
+        // a blocked three is no open three
+        gameBoard.addStone(gameBoard.cell(4, 7), StoneColor.WHITE);
+        assertFalse(index.isForbidden(center));
+        assertFalse(new ThreatIndex(new GameBoard()).isForbidden(center));
+    }
+
+
+    public void testRenjuDoubleFour() {
+
+        gameBoard = new GameBoard(15, RuleEnum.RENJU);
+        index = new ThreatIndex(gameBoard);
+        int center = gameBoard.cell(7, 7);
+
+        gameBoard.addStone(gameBoard.cell(3, 7), StoneColor.WHITE);
+        line(4, 6, 7, StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(7, 3), StoneColor.WHITE);
+        for(int y = 4; y<7; y++) gameBoard.addStone(gameBoard.cell(7, y), StoneColor.BLACK);
+        assertTrue(index.isForbidden(center));
+
+        // a five wins even if it makes a four too
+        gameBoard.addStone(gameBoard.cell(8, 7), StoneColor.BLACK);
+        assertEquals(Pattern.FIVE, index.getPattern(center, GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertFalse(index.isForbidden(center));
+    }
+
+
+    public void testRenjuOverlineAndLineDoubleFour() {
+
+        gameBoard = new GameBoard(15, RuleEnum.RENJU);
+        index = new ThreatIndex(gameBoard);
+
+        line(2, 4, 7, StoneColor.BLACK);
+        line(6, 7, 7, StoneColor.BLACK);
+        assertTrue(index.isForbidden(gameBoard.cell(5, 7)));
+
+        gameBoard.addStone(gameBoard.cell(3, 3), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(5, 3), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(6, 3), StoneColor.BLACK);
+        gameBoard.addStone(gameBoard.cell(9, 3), StoneColor.BLACK);
+        assertEquals(Pattern.DOUBLE_FOUR, index.getPattern(gameBoard.cell(7, 3), GameBoard.HORIZONTAL, StoneColor.BLACK));
+        assertTrue(index.isForbidden(gameBoard.cell(7, 3)));
+
+        // white wins with overlines
+        line(2, 4, 10, StoneColor.WHITE);
+        line(6, 7, 10, StoneColor.WHITE);
+        assertEquals(Pattern.FIVE, index.getPattern(gameBoard.cell(5, 10), GameBoard.HORIZONTAL, StoneColor.WHITE));
+    }
+
+}
@@ -0,0 +1,332 @@
+package piskvork;
+
+import engine.ParallelSearch;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import objects.GameBoard;
+import objects.RuleEnum;
+import objects.StoneColor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * This is the engine of the game as a brain for the Gomocup protocol of Piskvork and other tournament managers.
+ *
+ * The manager sends one command per line on stdin, the brain answers on stdout:
+ * START, RESTART, BEGIN, TURN, BOARD ... DONE, TAKEBACK, INFO, ABOUT and END.
+ * A move is answered with "x,y". Black moves first, so the brain is black after BEGIN and white after the first TURN.
+ * BOARD marks every stone as own (1) or of the opponent (2) in any order, the brain is white if the opponent has more.
+ * INFO rule selects {@link RuleEnum}: 1 exact five, 4 renju, otherwise freestyle. It takes effect on an empty board.
+ * The time per move comes from INFO timeout_turn and time_left, the table size from INFO max_memory.
+ *
+ * The brain only uses the engine and board classes, so it runs without libGDX.
+ */
+public class PiskvorkBrain
+{
+
+    public static final  String ABOUT          = "name=\"Gomoku\", version=\"1.0\", author=\"gomoku-actually-finished contributors\", country=\"DE\"";
+    // time kept back for reading and answering in milliseconds
+    private static final long   MARGIN         = 50;
+    // time_left is spread over this many moves
+    private static final int    MOVES_TO_GO    = 20;
+    private static final int    DEFAULT_MB     = 64;
+    private static final long   DEFAULT_MILLIS = 5000;
+
+    private final int            threads;
+    private       GameBoard      board;
+    private       RuleEnum       rule           = RuleEnum.FREESTYLE;
+    private       ParallelSearch search;
+    private       int            tableMb        = DEFAULT_MB;
+    private       long           timeoutTurn    = DEFAULT_MILLIS;
+    // time left for the match, -1 if there is no limit
+    private       long           timeLeft       = -1;
+    // color of the brain, EMPTY until the first move
+    private       byte           color          = StoneColor.EMPTY;
+    // stones of a BOARD command and their fields, null outside of one
+    private       int[]          boardMoves;
+    private       boolean[]      boardOwn;
+    private       int            boardCount;
+    private       SearchResult   lastResult;
+
+
+    /**
+     * Constructor for PiskvorkBrain.
+     *
+     * @param threads number of search threads
+     */
+    public PiskvorkBrain(int threads) {
+
+        this.threads = threads;
+    }
+
+
+    /**
+     * Runs the brain on stdin and stdout until END.
+     *
+     * @param args optional number of search threads, 1 by default
+     *
+     * @throws IOException if stdin can not be read
+     */
+    public static void main(String[] args) throws IOException {
+
+        PiskvorkBrain brain = new PiskvorkBrain(args.length>0 ? Integer.parseInt(args[0]) : 1);
+        brain.run(new BufferedReader(new InputStreamReader(System.in)), System.out);
+    }
+
+
+    /**
+     * Answers commands until END or the end of the input.
+     *
+     * @param in  commands of the manager
+     * @param out answers of the brain
+     *
+     * @throws IOException if the input can not be read
+     */
+    public void run(BufferedReader in, PrintStream out) throws IOException {
+
+        String line;
+        while((line = in.readLine()) != null) {
+            if(line.trim().equalsIgnoreCase("END")) break;
+            String answer = command(line);
+            if(answer != null) {
+                out.println(answer);
+                out.flush();
+            }
+        }
+        if(search != null) search.shutdown();
+    }
+
+
+    /**
+     * Answers one command.
+     *
+     * @param line command line of the manager
+     *
+     * @return answer line, null if the command has no answer
+     */
+    public String command(String line) {
+
+        line = line.trim();
+        if(boardMoves != null) return boardLine(line);
+        if(line.isEmpty()) return null;
+
+        int    space     = line.indexOf(' ');
+        String name      = (space<0 ? line : line.substring(0, space)).toUpperCase();
+        String arguments = space<0 ? "" : line.substring(space+1).trim();
+        try {
+            switch(name) {
+                case "START":
+                    return start(Integer.parseInt(arguments));
+                case "RECTSTART":
+                    return "ERROR only square boards are supported";
+                case "RESTART":
+                    return board == null ? "ERROR no START" : start(board.getSize());
+                case "BEGIN":
+                    if(board == null) return "ERROR no START";
+                    if(board.getMoveCount()>0) return "ERROR the board is not empty";
+                    color = StoneColor.BLACK;
+                    return move();
+                case "TURN":
+                    if(board == null) return "ERROR no START";
+                    if(color == StoneColor.EMPTY) color = StoneColor.opponent(parity());
+                    String error = play(cell(arguments), StoneColor.opponent(color));
+                    return error != null ? error : move();
+                case "BOARD":
+                    if(board == null) return "ERROR no START";
+                    boardMoves = new int[board.getSize()*board.getSize()];
+                    boardOwn = new boolean[boardMoves.length];
+                    boardCount = 0;
+                    return null;
+                case "TAKEBACK":
+                    if(board == null) return "ERROR no START";
+                    return takeback(cell(arguments));
+                case "INFO":
+                    info(arguments);
+                    return null;
+                case "ABOUT":
+                    return ABOUT;
+                default:
+                    return "UNKNOWN "+name;
+            }
+        } catch(NumberFormatException e) {
+            return "ERROR malformed command: "+line;
+        }
+    }
+
+
+    /**
+     * @return {@link SearchResult} of the last move of the brain, null before the first one
+     */
+    public SearchResult getLastResult() {
+
+        return lastResult;
+    }
+
+
+    /**
+     * Time budget of the next move: timeout_turn, or less if the time left for the match is short.
+     * A timeout_turn of 0 asks for a move as fast as possible, the brain then searches for 1 millisecond.
+     *
+     * @return milliseconds, at least 1
+     */
+    public long getMoveMillis() {
+
+        long millis = timeoutTurn;
+        if(timeLeft>=0) millis = Math.min(millis, timeLeft/MOVES_TO_GO);
+        return Math.max(1, millis-Math.min(MARGIN, millis/4));
+    }
+
+
+    private String start(int size) {
+
+        if(size<5 || size>100) return "ERROR unsupported size "+size;
+        board = new GameBoard(size, rule);
+        color = StoneColor.EMPTY;
+        return "OK";
+    }
+
+
+    /**
+     * Reads "x,y,field" lines of a BOARD command until DONE, then places the stones and answers with a move.
+     * The field is 1 for an own stone and 2 for a stone of the opponent, the order of the lines does not matter.
+     * Black moves first, so the brain is black if it has as many stones as the opponent.
+     * Field 3 of a continuous game is not supported.
+     */
+    private String boardLine(String line) {
+
+        if(line.equalsIgnoreCase("DONE")) {
+            int[]     moves = boardMoves;
+            boolean[] own   = boardOwn;
+            int       count = boardCount;
+            int       owned = 0;
+            boardMoves = null;
+            boardOwn = null;
+            for(int i = 0; i<count; i++) if(own[i]) owned++;
+            color = count-owned>owned ? StoneColor.WHITE : StoneColor.BLACK;
+            board = new GameBoard(board.getSize(), rule);
+            for(int i = 0; i<count; i++) {
+                String error = play(moves[i], own[i] ? color : StoneColor.opponent(color));
+                if(error != null) return error;
+            }
+            return move();
+        }
+        if(line.isEmpty()) return null;
+        String[] parts = line.split(",");
+        try {
+            int cell  = parts.length == 3 ? cell(parts[0]+","+parts[1]) : -1;
+            int field = parts.length == 3 ? Integer.parseInt(parts[2].trim()) : 0;
+            if(cell<0 || boardCount == boardMoves.length) return "ERROR malformed stone: "+line;
+            if(field != 1 && field != 2) return "ERROR unsupported field: "+line;
+            boardOwn[boardCount] = field == 1;
+            boardMoves[boardCount++] = cell;
+        } catch(NumberFormatException e) {
+            return "ERROR malformed stone: "+line;
+        }
+        return null;
+    }
+
+
+    private void info(String arguments) {
+
+        int    space = arguments.indexOf(' ');
+        String key   = space<0 ? arguments : arguments.substring(0, space);
+        String value = space<0 ? "" : arguments.substring(space+1).trim();
+        try {
+            switch(key.toLowerCase()) {
+                case "timeout_turn":
+                    timeoutTurn = Long.parseLong(value);
+                    break;
+                case "time_left":
+                    timeLeft = Long.parseLong(value);
+                    break;
+                case "max_memory":
+                    long bytes = Long.parseLong(value);
+                    // half of the memory for the table, 0 means no limit
+                    int megabytes = bytes == 0 ? DEFAULT_MB : (int) Math.max(1, Math.min(1024, bytes/2 >> 20));
+                    if(megabytes != tableMb && search != null) {
+                        search.shutdown();
+                        search = null;
+                    }
+                    tableMb = megabytes;
+                    break;
+                case "rule":
+                    int bits = Integer.parseInt(value);
+                    rule = (bits & 4) != 0 ? RuleEnum.RENJU : (bits & 1) != 0 ? RuleEnum.EXACT_FIVE : RuleEnum.FREESTYLE;
+                    if(board != null && board.getMoveCount() == 0) board = new GameBoard(board.getSize(), rule);
+                    break;
+                default:
+                    // timeout_match, game_type, folder and others are not needed
+            }
+        } catch(NumberFormatException e) {
+            // the protocol has no answer to INFO, a malformed value is ignored
+        }
+    }
+
+
+    /**
+     * Places a stone.
+     *
+     * @return error answer or null
+     */
+    private String play(int cell, byte stone) {
+
+        if(cell<0 || !board.checkValid(cell)) return "ERROR invalid move";
+        board.addStone(cell, stone);
+        return null;
+    }
+
+
+    private String takeback(int cell) {
+
+        int count = board.getMoveCount();
+        if(count == 0 || board.getMove(count-1) != cell) return "ERROR can only take back the last move";
+        board.undo();
+        return "OK";
+    }
+
+
+    /**
+     * Searches and plays a move of the brain.
+     *
+     * @return "x,y"
+     */
+    private String move() {
+
+        if(board.getCounter() == 0) return "ERROR the board is full";
+        if(search == null) search = new ParallelSearch(threads, new TranspositionTable(tableMb));
+        SearchResult result = search.search(board.snapshot(), color, getMoveMillis());
+        lastResult = result;
+        if(result.getMove()<0) return "ERROR no move left";
+        board.addStone(result.getMove(), color);
+        return board.cellX(result.getMove())+","+board.cellY(result.getMove());
+    }
+
+
+    /**
+     * @return color of the next stone if the players alternated from the start, as for a TURN without a color yet
+     */
+    private byte parity() {
+
+        return board.getMoveCount()%2 == 0 ? StoneColor.BLACK : StoneColor.WHITE;
+    }
+
+
+    /**
+     * Cell of "x,y".
+     *
+     * @return cell index, -1 if it is not on the board
+     */
+    private int cell(String coordinates) {
+
+        String[] parts = coordinates.split(",");
+        if(parts.length != 2) throw new NumberFormatException(coordinates);
+        int x = Integer.parseInt(parts[0].trim());
+        int y = Integer.parseInt(parts[1].trim());
+        if(x<0 || y<0 || x>=board.getSize() || y>=board.getSize()) return -1;
+        return board.cell(x, y);
+    }
+
+}
@@ -0,0 +1,156 @@
+package piskvork;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/**
+ * Tests for {@link PiskvorkBrain}.
+ */
+public class PiskvorkBrainTest extends TestCase
+{
+
+    PiskvorkBrain brain = new PiskvorkBrain(1);
+
+
+    @Override
+    protected void setUp() {
+
+        brain.command("INFO timeout_turn 200");
+    }
+
+
+    public void testBegin() {
+
+        assertEquals("ERROR no START", brain.command("BEGIN"));
+        assertEquals("OK", brain.command("START 15"));
+        assertEquals("7,7", brain.command("BEGIN"));
+        assertEquals("ERROR the board is not empty", brain.command("BEGIN"));
+    }
+
+
+    public void testTurn() {
+
+        brain.command("START 15");
+        String answer = brain.command("TURN 7,7");
+        assertTrue(answer, answer.matches("\\d+,\\d+"));
+        assertFalse("7,7".equals(answer));
+        assertEquals("ERROR invalid move", brain.command("TURN 7,7"));
+        assertEquals("ERROR invalid move", brain.command("TURN 15,0"));
+        assertTrue(brain.command("TURN 7").startsWith("ERROR"));
+    }
+
+
+    public void testBoardBlocksFour() {
+
+        brain.command("START 15");
+        assertNull(brain.command("BOARD"));
+        // the opponent, field 2, has four in a row that is blocked on the left
+        String[] stones = {"4,7,2", "3,7,1", "5,7,2", "0,0,1", "6,7,2", "0,14,1", "7,7,2"};
+        for(String stone : stones) assertNull(brain.command(stone));
+        assertEquals("8,7", brain.command("DONE"));
+        assertTrue(brain.getLastResult().getNodes()>0);
+    }
+
+
+    public void testBoardWins() {
+
+        brain.command("START 15");
+        brain.command("BOARD");
+        String[] stones = {"4,7,1", "4,9,2", "5,7,1", "5,9,2", "6,7,1", "6,9,2", "7,7,1", "3,7,2"};
+        for(String stone : stones) brain.command(stone);
+        assertEquals("8,7", brain.command("DONE"));
+    }
+
+
+    public void testBoardOutOfOrder() {
+
+        brain.command("START 15");
+        brain.command("BOARD");
+        // all stones of the opponent first, then the own ones: the brain has as many, so it is black and wins
+        String[] stones = {"4,9,2", "5,9,2", "6,9,2", "3,7,2", "4,7,1", "5,7,1", "6,7,1", "7,7,1"};
+        for(String stone : stones) assertNull(brain.command(stone));
+        assertEquals("8,7", brain.command("DONE"));
+
+        // own stones first, the opponent has one more and is black, the brain as white blocks the four
+        brain.command("RESTART");
+        brain.command("BOARD");
+        stones = new String[]{"3,7,1", "0,0,1", "0,14,1", "4,7,2", "5,7,2", "6,7,2", "7,7,2"};
+        for(String stone : stones) assertNull(brain.command(stone));
+        assertEquals("8,7", brain.command("DONE"));
+        String answer = brain.command("TURN 0,7");
+        assertTrue(answer, answer.matches("\\d+,\\d+"));
+    }
+
+
+    public void testBoardField() {
+
+        brain.command("START 15");
+        brain.command("BOARD");
+        assertEquals("ERROR unsupported field: 7,7,3", brain.command("7,7,3"));
+        assertEquals("ERROR malformed stone: 7,7", brain.command("7,7"));
+    }
+
+
+    public void testTakeback() {
+
+        brain.command("START 15");
+        String answer = brain.command("TURN 7,7");
+        assertEquals("ERROR can only take back the last move", brain.command("TAKEBACK 7,7"));
+        assertEquals("OK", brain.command("TAKEBACK "+answer));
+        assertEquals("OK", brain.command("TAKEBACK 7,7"));
+        assertEquals("7,7", brain.command("BEGIN"));
+    }
+
+
+    public void testInfo() {
+
+        brain.command("INFO timeout_turn 1000");
+        assertEquals(950, brain.getMoveMillis());
+        brain.command("INFO time_left 2000");
+        assertEquals(75, brain.getMoveMillis());
+        brain.command("INFO max_memory 83886080");
+        brain.command("INFO rule 1");
+        brain.command("INFO evaluate 3,3");
+        assertNull(brain.command("INFO timeout_match abc"));
+    }
+
+
+    public void testFastest() {
+
+        // 0 means as fast as possible, not the default
+        brain.command("INFO timeout_turn 0");
+        assertEquals(1, brain.getMoveMillis());
+        brain.command("START 15");
+        long   start  = System.currentTimeMillis();
+        String answer = brain.command("TURN 7,7");
+        assertTrue(answer, answer.matches("\\d+,\\d+"));
+        assertTrue(System.currentTimeMillis()-start<1000);
+    }
+
+
+    public void testUnknown() {
+
+        assertEquals(PiskvorkBrain.ABOUT, brain.command("ABOUT"));
+        assertEquals("UNKNOWN PLAY", brain.command("PLAY 1,1"));
+        assertEquals("ERROR only square boards are supported", brain.command("RECTSTART 20,15"));
+        assertEquals("ERROR unsupported size 2", brain.command("START 2"));
+    }
+
+
+    public void testRun() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String                input = "START 15\nINFO timeout_turn 100\nBEGIN\nEND\nBEGIN\n";
+        brain.run(new BufferedReader(new StringReader(input)), new PrintStream(bytes, true));
+        String[] lines = bytes.toString().trim().split("\\s+");
+        assertEquals(2, lines.length);
+        assertEquals("OK", lines[0]);
+        assertEquals("7,7", lines[1]);
+    }
+
+}